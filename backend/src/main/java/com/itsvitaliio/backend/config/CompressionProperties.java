@@ -0,0 +1,19 @@
+package com.itsvitaliio.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "response-compression")
+public class CompressionProperties {
+    private boolean enabled = true;
+    private int minResponseSize = 2048;    // Bodies below this are sent as they are
+    private int zstdLevel = 3;             // Preferred whenever the client accepts zstd
+    private int gzipLevel = 6;
+    private List<String> mimeTypes = new ArrayList<>(List.of("application/json"));
+}
@@ -0,0 +1,38 @@
+package com.itsvitaliio.backend.config;
+
+import com.itsvitaliio.backend.services.DatabaseBulkhead;
+import com.itsvitaliio.backend.utilities.BulkheadDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "db.bulkhead.enabled", havingValue = "true")
+public class DatabaseBulkheadConfig {
+
+    @Bean
+    public DatabaseBulkhead databaseBulkhead(@Value("${db.bulkhead.permits:10}") int permits,
+                                             @Value("${db.bulkhead.max-wait:5s}") Duration maxWait) {
+        return new DatabaseBulkhead(permits, maxWait);
+    }
+
+    // Static so the post-processor does not pull this configuration in early
+    @Bean
+    public static BeanPostProcessor bulkheadDataSourcePostProcessor(ObjectProvider<DatabaseBulkhead> bulkhead) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof BulkheadDataSource)) {
+                    return new BulkheadDataSource(dataSource, bulkhead.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
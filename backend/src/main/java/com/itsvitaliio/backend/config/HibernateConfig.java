@@ -0,0 +1,18 @@
+package com.itsvitaliio.backend.config;
+
+import com.itsvitaliio.backend.utilities.StatementCounter;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class HibernateConfig {
+
+    // An inspector configured explicitly through spring.jpa.properties takes precedence
+    @Bean
+    public HibernatePropertiesCustomizer statementCounterCustomizer() {
+        return hibernateProperties -> hibernateProperties.putIfAbsent(
+                AvailableSettings.STATEMENT_INSPECTOR, StatementCounter.class.getName());
+    }
+}
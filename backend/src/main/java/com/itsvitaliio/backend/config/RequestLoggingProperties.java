@@ -0,0 +1,43 @@
+package com.itsvitaliio.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "request-logging")
+public class RequestLoggingProperties {
+    private boolean enabled = true;
+    private int maxBodyBytes = 2048;       // Upper bound on the body prefix kept per request
+    private int queueCapacity = 10_000;    // Records beyond this are dropped, never waited for
+    private double defaultSampleRate = 1.0;
+    private Map<String, Double> sampleRates = new LinkedHashMap<>(); // URI prefix -> sample rate
+    // URI prefixes whose bodies are never kept; they carry passwords
+    private List<String> unloggedBodyPaths = new ArrayList<>(List.of("/register", "/login", "/notatky/change-password"));
+
+    // The rate of the longest matching prefix wins
+    public double sampleRateFor(String uri) {
+        String bestPrefix = null;
+        for (String prefix : sampleRates.keySet()) {
+            if (uri.startsWith(prefix) && (bestPrefix == null || prefix.length() > bestPrefix.length())) {
+                bestPrefix = prefix;
+            }
+        }
+        return bestPrefix != null ? sampleRates.get(bestPrefix) : defaultSampleRate;
+    }
+
+    public boolean isBodyLoggedFor(String uri) {
+        for (String prefix : unloggedBodyPaths) {
+            if (uri.startsWith(prefix)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -32,6 +32,10 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(authorizeRequests ->
                 authorizeRequests
+                    // Health stays open for probes; metrics need an account with the METRICS role, and
+                    // must be matched before the catch-all below or it would let them through
+                    .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                    .requestMatchers("/actuator/**").hasRole("METRICS")
                     .requestMatchers("/**").permitAll()
                     .requestMatchers("/notatky/**").authenticated()
             )
@@ -0,0 +1,21 @@
+package com.itsvitaliio.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "sql.statement-budget")
+public class StatementBudgetProperties {
+    private boolean enabled = true;
+    private int defaultBudget = 25;                          // Statements a request may run before it is logged
+    private Map<String, Integer> budgets = new LinkedHashMap<>(); // Handler URI pattern -> budget
+
+    public int budgetFor(String uriPattern) {
+        return budgets.getOrDefault(uriPattern, defaultBudget);
+    }
+}
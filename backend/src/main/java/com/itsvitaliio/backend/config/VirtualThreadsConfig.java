@@ -0,0 +1,19 @@
+package com.itsvitaliio.backend.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+
+// Boot ignores spring.threads.virtual.enabled below Java 21 and serves on platform threads,
+// so asking for virtual threads there stops startup instead of running something else
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+
+    public VirtualThreadsConfig() {
+        int javaVersion = Runtime.version().feature();
+        if (javaVersion < 21) {
+            throw new IllegalStateException("spring.threads.virtual.enabled=true needs a Java 21 runtime but this is Java "
+                    + javaVersion);
+        }
+    }
+}
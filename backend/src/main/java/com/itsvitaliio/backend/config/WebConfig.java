@@ -1,7 +1,9 @@
 package com.itsvitaliio.backend.config;
 
+import com.itsvitaliio.backend.controllers.NoteController;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -17,6 +19,7 @@ public class WebConfig {
                 registry.addMapping("/**")
                         .allowedOrigins("http://localhost:4200")
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
+                        .exposedHeaders(NoteController.NEXT_CURSOR_HEADER, HttpHeaders.ETAG)
                         .allowCredentials(true)
                         .maxAge(3600);
             }
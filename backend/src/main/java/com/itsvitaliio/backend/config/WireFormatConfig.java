@@ -0,0 +1,46 @@
+package com.itsvitaliio.backend.config;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+// Binary alternatives to JSON, chosen per request with Accept (and Content-Type for request bodies):
+// application/cbor or application/x-jackson-smile. JSON stays the default and keeps its shape; the binary
+// formats have no older clients to stay compatible with, so they leave null fields out.
+@Configuration
+public class WireFormatConfig {
+
+    // Replace the converters Spring MVC would register with default mappers, keeping their place after JSON
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(cborObjectMapper(builder));
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(smileObjectMapper(builder));
+    }
+
+    public static ObjectMapper cborObjectMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.factory(new CBORFactory())
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .build();
+    }
+
+    // Smile writes a back-reference for a short string it has already written, so the noteId and type
+    // repeated by every block of a note cost a byte or two after the first one
+    public static ObjectMapper smileObjectMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.factory(SmileFactory.builder()
+                        .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                        .build())
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .build();
+    }
+}
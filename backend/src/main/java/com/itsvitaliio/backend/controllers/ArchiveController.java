@@ -0,0 +1,98 @@
+package com.itsvitaliio.backend.controllers;
+
+import com.itsvitaliio.backend.dto.ArchiveImportResult;
+import com.itsvitaliio.backend.exceptions.ArchiveTooLargeException;
+import com.itsvitaliio.backend.exceptions.InvalidEntryException;
+import com.itsvitaliio.backend.filter.JwtFilter;
+import com.itsvitaliio.backend.services.AccountArchiveService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.zip.ZipException;
+
+@RestController
+@RequestMapping("/notatky")
+public class ArchiveController {
+
+    private static final String ZIP_CONTENT_TYPE = "application/zip";
+    private static final String EXPORT_RETRY_AFTER_SECONDS = "60";
+
+    private final AccountArchiveService accountArchiveService;
+
+    @Autowired
+    public ArchiveController(AccountArchiveService accountArchiveService) {
+        this.accountArchiveService = accountArchiveService;
+    }
+
+    private String getUserIdFromToken(HttpServletRequest request) {
+        // JwtFilter has already verified the token and stored the caller's ID
+        return (String) request.getAttribute(JwtFilter.AUTHENTICATED_USER_ID);
+    }
+
+    // The archive is written while it is being downloaded, so its size is not known up front
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportAccount(HttpServletRequest request) {
+        String userId = getUserIdFromToken(request);
+        if (userId == null) {
+            return ResponseEntity.status(401).build();
+        }
+
+        if (!accountArchiveService.tryStartExport()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, EXPORT_RETRY_AFTER_SECONDS)
+                    .build();
+        }
+
+        StreamingResponseBody body = out -> {
+            try {
+                accountArchiveService.exportAccount(userId, out);
+            } catch (IOException | RuntimeException e) {
+                // The status line is already sent; the client sees a truncated archive
+                System.err.println("exportAccount - Error exporting account " + userId + ": " + e.getMessage());
+                throw e;
+            } finally {
+                accountArchiveService.finishExport();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ZIP_CONTENT_TYPE))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("notatky-export.zip").build().toString())
+                .body(body);
+    }
+
+    // Takes the raw archive as the request body rather than a multipart upload, so it is never spooled
+    // and is not subject to the multipart size limits
+    @PostMapping(value = "/import", consumes = {ZIP_CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<?> importAccount(HttpServletRequest request) {
+        String userId = getUserIdFromToken(request);
+        if (userId == null) {
+            return ResponseEntity.status(401).body("Unauthorized");
+        }
+        try {
+            ArchiveImportResult result = accountArchiveService.importAccount(userId, request.getInputStream());
+            System.out.println("Imported " + result.getNotes() + " notes and " + result.getBlocks()
+                    + " blocks for User ID: " + userId);
+            return ResponseEntity.ok(result);
+        } catch (ArchiveTooLargeException e) {
+            System.out.println("Error importing archive: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("Archive too large: " + e.getMessage());
+        } catch (InvalidEntryException | ZipException e) {
+            System.out.println("Error importing archive: " + e.getMessage());
+            return ResponseEntity.status(400).body("Invalid archive: " + e.getMessage());
+        } catch (Exception e) {
+            System.out.println("Error importing archive: " + e.getMessage());
+            return ResponseEntity.status(500).body("Internal Server Error");
+        }
+    }
+}
@@ -1,51 +1,71 @@
 package com.itsvitaliio.backend.controllers;
 
 import com.itsvitaliio.backend.dto.BatchNoteChildRequest;
+import com.itsvitaliio.backend.dto.DeltaSyncRequest;
+import com.itsvitaliio.backend.dto.DeltaSyncResponse;
 import com.itsvitaliio.backend.dto.NoteChildDto;
+import com.itsvitaliio.backend.exceptions.InvalidEntryException;
 import com.itsvitaliio.backend.exceptions.NoteNotFoundException;
+import com.itsvitaliio.backend.exceptions.RevisionConflictException;
 import com.itsvitaliio.backend.models.ImageNode;
 import com.itsvitaliio.backend.repositories.ImageNodeRepository;
+import com.itsvitaliio.backend.services.ImageStore;
+import com.itsvitaliio.backend.services.ImageVariantService;
 import com.itsvitaliio.backend.services.NoteChildService;
-import com.itsvitaliio.backend.utilities.JwtUtil;
+import com.itsvitaliio.backend.services.NoteDocumentCache;
+import com.itsvitaliio.backend.utilities.FileResponseWriter;
+import com.itsvitaliio.backend.filter.JwtFilter;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import java.util.List;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 
 @RestController
 @RequestMapping("/notatky/note-children")
 @CrossOrigin(origins = "http://localhost:4200")  // Replace with your frontend URL
 public class NoteChildController {
 
-    private final JwtUtil jwtUtil;
+    // Browsers may reuse an image for a day, then revalidate it with If-None-Match
+    private static final String IMAGE_CACHE_CONTROL = "private, max-age=86400";
+
     private final NoteChildService noteChildService;
     private final ImageNodeRepository imageNodeRepository;
+    private final ImageVariantService imageVariantService;
+    private final ImageStore imageStore;
 
     @Autowired
-    public NoteChildController(JwtUtil jwtUtil, NoteChildService noteChildService, ImageNodeRepository imageNodeRepository) {
-        this.jwtUtil = jwtUtil;
+    public NoteChildController(NoteChildService noteChildService, ImageNodeRepository imageNodeRepository, ImageVariantService imageVariantService, ImageStore imageStore) {
         this.noteChildService = noteChildService;
         this.imageNodeRepository = imageNodeRepository;
+        this.imageVariantService = imageVariantService;
+        this.imageStore = imageStore;
     }
 
     // Endpoint to fetch all note children for a given note ID
     @GetMapping("/all/{noteId}")
     public ResponseEntity<List<NoteChildDto>> getAllNoteChildren(
             @PathVariable String noteId,
-            HttpServletRequest request) {
+            HttpServletRequest request,
+            HttpServletResponse response) {
 
         String userId = getUserIdFromToken(request);
         if (userId == null) {
@@ -53,8 +73,21 @@ public class NoteChildController {
         }
 
         try {
-            List<NoteChildDto> noteChildren = noteChildService.getAllNoteChildren(noteId);
-            return ResponseEntity.ok(noteChildren);
+            // JSON, CBOR or Smile depending on Accept, so caches must keep them apart
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            // An unchanged note costs one primary-key lookup and is not hydrated.
+            Optional<Long> revision = noteChildService.getRevision(noteId);
+            String etag = revision.map(NoteChildController::revisionETag).orElse(null);
+            if (etag != null && new ServletWebRequest(request, response).checkNotModified(etag)) {
+                return null; // 304 Not Modified
+            }
+
+            // The ETag is the revision the children were hydrated with, which is never newer than the body
+            NoteDocumentCache.NoteDocument document = noteChildService.getNoteDocument(noteId, revision.orElse(Long.MIN_VALUE));
+            if (document.revision() != null) {
+                response.setHeader(HttpHeaders.ETAG, revisionETag(document.revision()));
+            }
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(document.children());
         } catch (NoteNotFoundException e) {
             System.out.println("\nNote not found: " + e.getMessage());
             return ResponseEntity.status(404).body(null); // Note not found
@@ -64,13 +97,14 @@ public class NoteChildController {
         }
     }
 
+    // Weak, so compressed responses keep it
+    private static String revisionETag(long revision) {
+        return "W/\"" + revision + "\"";
+    }
+
     private String getUserIdFromToken(HttpServletRequest request) {
-        final String authorizationHeader = request.getHeader("Authorization");
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            String jwt = authorizationHeader.substring(7);
-            return jwtUtil.extractUserId(jwt);
-        }
-        return null;
+        // JwtFilter has already verified the token and stored the caller's ID
+        return (String) request.getAttribute(JwtFilter.AUTHENTICATED_USER_ID);
     }
 
     @PostMapping("/sync/{noteId}")
@@ -86,7 +120,8 @@ public class NoteChildController {
         try {
             // Get the list of updated note children from the service
             List<NoteChildDto> updatedNoteChildren = noteChildService.syncNoteChildren(noteId, batchRequest.getNoteChildren());
-            return ResponseEntity.ok(updatedNoteChildren); // Return the updated list to the frontend
+            // Return the updated list to the frontend, in the format it asked for
+            return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(updatedNoteChildren);
         } catch (NoteNotFoundException e) {
             System.out.println("\nNote not found: " + e.getMessage());
             return ResponseEntity.status(404).body(null); // Note not found
@@ -96,6 +131,35 @@ public class NoteChildController {
         }
     }
 
+    // Delta sync: applies only the listed operations instead of diffing the whole note
+    @PostMapping("/sync/{noteId}/operations")
+    public ResponseEntity<DeltaSyncResponse> applyOperations(
+            @PathVariable String noteId,
+            @RequestBody DeltaSyncRequest deltaRequest,
+            HttpServletRequest request) {
+
+        String userId = getUserIdFromToken(request);
+        if (userId == null) {
+            return ResponseEntity.status(401).body(null); // Unauthorized
+        }
+        try {
+            return ResponseEntity.ok(noteChildService.applyOperations(noteId, deltaRequest));
+        } catch (RevisionConflictException e) {
+            // Tell the client which revision to rebase onto
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new DeltaSyncResponse(e.getCurrentRevision(), Map.of()));
+        } catch (NoteNotFoundException e) {
+            System.out.println("\nNote not found: " + e.getMessage());
+            return ResponseEntity.status(404).body(null); // Note not found
+        } catch (InvalidEntryException e) {
+            System.out.println("\nInvalid operation: " + e.getMessage());
+            return ResponseEntity.status(400).body(null); // Bad request
+        } catch (Exception e) {
+            System.out.println("\nINTERNAL SERVER ERROR: " + e.getMessage());
+            return ResponseEntity.status(500).body(null); // Internal Server Error
+        }
+    }
+
     @PostMapping("/upload/{noteId}/{noteChildId}")
     public ResponseEntity<List<NoteChildDto>> uploadImage(
             @PathVariable String noteId,
@@ -114,6 +178,9 @@ public class NoteChildController {
             // Call the service to handle the image upload
             List<NoteChildDto> updatedNoteChildren = noteChildService.uploadImage(noteId, noteChildId, imageFile);
             return ResponseEntity.ok(updatedNoteChildren);
+        } catch (NoteNotFoundException e) {
+            System.out.println("\nNote child not found: " + e.getMessage());
+            return ResponseEntity.status(404).body(null); // Note child not found
         } catch (Exception e) {
             System.err.println("Error uploading image: " + e.getMessage());
             return ResponseEntity.status(500).body(null); // Internal Server Error
@@ -123,42 +190,80 @@ public class NoteChildController {
 
     // Endpoint to retrieve an image by imageNodeId
     @GetMapping("/images/{imageNodeId}")
-    public ResponseEntity<Resource> getImage(@PathVariable String imageNodeId) {
-        // Log that the request is received
-        System.err.println("\nReceived request to get image\n");
+    public void getImage(@PathVariable String imageNodeId,
+                         @RequestParam(value = "w", required = false) Integer width,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
         try {
             // Fetch the ImageNode from the repository to get the file path
-            ImageNode imageNode = imageNodeRepository.findById(imageNodeId)
-                    .orElseThrow(() -> new RuntimeException("Image not found"));
+            ImageNode imageNode = imageNodeRepository.findById(imageNodeId).orElse(null);
+            if (imageNode == null) {
+                response.sendError(HttpStatus.NOT_FOUND.value());
+                return;
+            }
 
-            // Convert the file path from the ImageNode into a Path object
+            // Convert the file path from the ImageNode into a Path object; rows can name any path,
+            // but only files in the image store are ever served
             Path imagePath = Paths.get(imageNode.getImagePath());
+            if (!imageStore.contains(imagePath)) {
+                response.sendError(HttpStatus.NOT_FOUND.value());
+                return;
+            }
+            String contentType = imageNode.getContentType();
+            String cacheControl = IMAGE_CACHE_CONTROL;
+            String etagSuffix = "";
 
-            // Load the image as a resource
-            Resource imageResource = new UrlResource(imagePath.toUri());
+            // A ?w= request gets the closest generated variant, or the original until it exists
+            if (width != null && width > 0) {
+                Optional<ImageVariantService.Variant> variant = imageVariantService.find(imagePath, width);
+                if (variant.isPresent()) {
+                    imagePath = variant.get().path();
+                    contentType = variant.get().contentType();
+                    etagSuffix = "-w" + variant.get().width();
+                } else if (imageVariantService.generate(imagePath)) {
+                    cacheControl = "no-cache"; // Revalidate so the variant is picked up once ready
+                }
+            }
 
-            // If the image does not exist or is not readable, return 404
-            if (!imageResource.exists() || !imageResource.isReadable()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(imagePath, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                response.sendError(HttpStatus.NOT_FOUND.value());
+                return;
             }
 
-            
-            // Determine the content type (e.g., image/jpeg, image/png)
-            MediaType mediaType = MediaType.IMAGE_JPEG; // default, adjust if necessary
-            String contentType = Files.probeContentType(imagePath);
-            if (contentType != null) {
-                mediaType = MediaType.parseMediaType(contentType);
+            // Content-addressed images are identified by their hash; older ones by size and mtime
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            String etag = imageNode.getContentHash() != null
+                    ? "\"" + imageNode.getContentHash() + etagSuffix + "\""
+                    : "\"" + Long.toHexString(attributes.size()) + "-" + Long.toHexString(lastModified) + "\"";
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+            if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+                return; // 304 Not Modified
             }
 
-            // Return the image as a response entity
-            return ResponseEntity.ok()
-                    .contentType(mediaType)
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + imageNode.getImagePath() + "\"")
-                    .body(imageResource);
+            // Rows written before uploads were sniffed may carry whatever type the client sent, so only
+            // known raster types are trusted; anything else is checked against the bytes and, unless it
+            // turns out to be one, downloaded rather than rendered on this origin
+            if (!ImageStore.isInline(contentType)) {
+                contentType = ImageStore.detectContentType(imagePath);
+            }
+            boolean inline = ImageStore.isInline(contentType);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, inline ? "inline" : "attachment");
+            response.setHeader("X-Content-Type-Options", "nosniff");
+            long bytesSent = FileResponseWriter.write(request, response, imagePath, attributes.size(),
+                    inline ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE, etag);
+            imageStore.recordBytesRead(bytesSent);
 
+        } catch (IOException e) {
+            // Usually the client went away mid-transfer
+            System.err.println("\nError streaming image: " + e.getMessage());
         } catch (Exception e) {
             System.err.println("\nError retrieving image: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            if (!response.isCommitted()) {
+                response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            }
         }
     }
 }
@@ -5,13 +5,16 @@ import com.itsvitaliio.backend.exceptions.InvalidEntryException;
 import com.itsvitaliio.backend.exceptions.NoteNotFoundException;
 import com.itsvitaliio.backend.models.Note;
 import com.itsvitaliio.backend.services.NoteService;
-import com.itsvitaliio.backend.utilities.JwtUtil;
+import com.itsvitaliio.backend.filter.JwtFilter;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.List;
 
@@ -19,22 +22,19 @@ import java.util.List;
 @RequestMapping("/notatky")
 public class NoteController {
 
-    private final JwtUtil jwtUtil;
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
     private final NoteService noteService;
 
     @Autowired
-    public NoteController(JwtUtil jwtUtil, NoteService noteService) {
-        this.jwtUtil = jwtUtil;
+    public NoteController(NoteService noteService) {
         this.noteService = noteService;
     }
 
     private String getUserIdFromToken(HttpServletRequest request) {
-        final String authorizationHeader = request.getHeader("Authorization");
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            String jwt = authorizationHeader.substring(7);
-            return jwtUtil.extractUserId(jwt);
-        }
-        return null;
+        // JwtFilter has already verified the token and stored the caller's ID
+        return (String) request.getAttribute(JwtFilter.AUTHENTICATED_USER_ID);
     }
 
     @PostMapping("/create")
@@ -54,21 +54,62 @@ public class NoteController {
         }
     }
 
+    // Without a limit the whole list is returned; with one, the next page's cursor comes back in X-Next-Cursor
     @GetMapping("/notes")
-    public ResponseEntity<?> getAllNotes(HttpServletRequest request) {
+    public ResponseEntity<?> getAllNotes(HttpServletRequest request,
+                                         HttpServletResponse servletResponse,
+                                         @RequestParam(value = "limit", required = false) Integer limit,
+                                         @RequestParam(value = "cursor", required = false) String cursor) {
         String userId = getUserIdFromToken(request);
         if (userId == null) {
             return ResponseEntity.status(401).body("Unauthorized");
         }
         try {
-            List<Note> notes = noteService.getAllNotesForUser(userId);
-            return ResponseEntity.ok().body(notes);
+            // Every page shares the list's revision; the user ID keeps accounts on one device apart
+            String etag = noteService.getNotesRevision(userId)
+                    .map(revision -> "W/\"" + userId + "-" + revision + "\"")
+                    .orElse(null);
+            if (etag != null && new ServletWebRequest(request, servletResponse).checkNotModified(etag)) {
+                return null; // 304 Not Modified
+            }
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate());
+            if (etag != null) {
+                response.eTag(etag);
+            }
+            if (limit == null && cursor == null) {
+                List<NoteListItemDto> notes = noteService.getAllNotesForUser(userId);
+                return response.body(notes);
+            }
+            NoteService.NotePage page = noteService.getNotesPage(userId, cursor, limit != null ? limit : DEFAULT_PAGE_SIZE);
+            if (page.nextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+            }
+            return response.body(page.notes());
+        } catch (InvalidEntryException e) {
+            return ResponseEntity.status(400).body(e.getMessage());
         } catch (Exception e) {
             System.out.println("Error retrieving notes: " + e.getMessage());
             return ResponseEntity.status(500).body("Internal Server Error");
         }
     }
 
+    // Child count, image count and a preview of the first text block for every note, in one query
+    @GetMapping("/notes/summary")
+    public ResponseEntity<?> getNoteSummaries(HttpServletRequest request) {
+        String userId = getUserIdFromToken(request);
+        if (userId == null) {
+            return ResponseEntity.status(401).body("Unauthorized");
+        }
+        try {
+            List<NoteSummary> summaries = noteService.getNoteSummaries(userId);
+            return ResponseEntity.ok().body(summaries);
+        } catch (Exception e) {
+            System.out.println("Error retrieving note summaries: " + e.getMessage());
+            return ResponseEntity.status(500).body("Internal Server Error");
+        }
+    }
+
     @PutMapping("/edit")
     public ResponseEntity<?> editNoteTitle(HttpServletRequest request, @RequestBody EditNoteTitleRequest editNoteTitleRequest) {
         String userId = getUserIdFromToken(request);
@@ -0,0 +1,52 @@
+package com.itsvitaliio.backend.controllers;
+
+import com.itsvitaliio.backend.dto.SearchResultDto;
+import com.itsvitaliio.backend.filter.JwtFilter;
+import com.itsvitaliio.backend.services.SearchIndexService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/notatky")
+public class SearchController {
+
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+
+    private final SearchIndexService searchIndexService;
+
+    @Autowired
+    public SearchController(SearchIndexService searchIndexService) {
+        this.searchIndexService = searchIndexService;
+    }
+
+    private String getUserIdFromToken(HttpServletRequest request) {
+        // JwtFilter has already verified the token and stored the caller's ID
+        return (String) request.getAttribute(JwtFilter.AUTHENTICATED_USER_ID);
+    }
+
+    // Notes whose text blocks contain every word of q, with the matching blocks and highlight offsets
+    @GetMapping("/search")
+    public ResponseEntity<?> search(HttpServletRequest request,
+                                    @RequestParam("q") String query,
+                                    @RequestParam(value = "limit", required = false) Integer limit) {
+        String userId = getUserIdFromToken(request);
+        if (userId == null) {
+            return ResponseEntity.status(401).body("Unauthorized");
+        }
+        try {
+            int maxResults = Math.max(1, Math.min(limit != null ? limit : DEFAULT_LIMIT, MAX_LIMIT));
+            List<SearchResultDto> results = searchIndexService.search(userId, query, maxResults);
+            return ResponseEntity.ok(results);
+        } catch (Exception e) {
+            System.out.println("Error searching notes: " + e.getMessage());
+            return ResponseEntity.status(500).body("Internal Server Error");
+        }
+    }
+}
@@ -1,8 +1,9 @@
 package com.itsvitaliio.backend.controllers;
 
 import com.itsvitaliio.backend.dto.*;
+import com.itsvitaliio.backend.services.AccountDeletionJob;
 import com.itsvitaliio.backend.services.UserService;
-import com.itsvitaliio.backend.utilities.JwtUtil;
+import com.itsvitaliio.backend.filter.JwtFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -13,21 +14,17 @@ import org.springframework.web.bind.annotation.*;
 public class UserController {
 
     private final UserService userService;
-    private final JwtUtil jwtUtil;
+    private final AccountDeletionJob accountDeletionJob;
 
     @Autowired
-    public UserController(UserService userService, JwtUtil jwtUtil) {
+    public UserController(UserService userService, AccountDeletionJob accountDeletionJob) {
         this.userService = userService;
-        this.jwtUtil = jwtUtil;
+        this.accountDeletionJob = accountDeletionJob;
     }
 
     private String getUserIdFromToken(HttpServletRequest request) {
-        final String authorizationHeader = request.getHeader("Authorization");
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            String jwt = authorizationHeader.substring(7);
-            return jwtUtil.extractUserId(jwt);
-        }
-        return null;
+        // JwtFilter has already verified the token and stored the caller's ID
+        return (String) request.getAttribute(JwtFilter.AUTHENTICATED_USER_ID);
     }
 
     @PutMapping("/change-username")
@@ -83,10 +80,20 @@ public class UserController {
         }
 
         try {
-            userService.deleteUserAccount(userId);
-            return ResponseEntity.ok("Account deleted successfully");
+            // Access is revoked now; the data is purged in the background and tracked under the returned ID
+            String deletionId = userService.deleteUserAccount(userId);
+            return ResponseEntity.accepted().body(accountDeletionJob.getStatus(deletionId).orElseThrow());
         } catch (Exception e) {
             return ResponseEntity.status(400).body(e.getMessage());
         }
     }
+
+    // Readable without a token: the account's tokens stop working as soon as deletion is requested,
+    // and the random ID is only known to whoever requested it
+    @GetMapping("/delete-account/{deletionId}")
+    public ResponseEntity<?> getAccountDeletionStatus(@PathVariable String deletionId) {
+        return accountDeletionJob.getStatus(deletionId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(404).body("Account deletion not found"));
+    }
 }
@@ -0,0 +1,19 @@
+package com.itsvitaliio.backend.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountDeletionStatus {
+    private String id;                 // Opaque job ID, returned when the deletion is requested
+    private boolean completed;
+    private long notesTotal;
+    private long notesPurged;
+    private long filesPurged;
+    private LocalDateTime requestedAt;
+    private LocalDateTime completedAt;
+}
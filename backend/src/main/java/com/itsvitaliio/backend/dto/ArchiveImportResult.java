@@ -0,0 +1,15 @@
+package com.itsvitaliio.backend.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchiveImportResult {
+    private int notes;
+    private int blocks;
+    private int images;        // Distinct image files read from the archive
+    private int skippedBlocks; // Image blocks whose file was missing from the archive
+}
@@ -0,0 +1,28 @@
+package com.itsvitaliio.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// One line of notes.ndjson in an account archive: a note, or a block of the note named by noteId.
+// Notes come first, then blocks grouped by note in display order.
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ArchiveRecord {
+    public static final String NOTE = "note";
+    public static final String BLOCK = "block";
+
+    private String record;             // "note" or "block"
+    private String id;                 // Note ID as exported; import assigns new IDs
+    private String title;
+    private LocalDateTime lastInteractedWith;
+
+    private String noteId;
+    private String type;               // "text" or "image"
+    private String sortKey;
+    private String content;            // Text blocks
+    private String file;               // Image blocks: archive entry holding the image
+    private String contentType;
+}
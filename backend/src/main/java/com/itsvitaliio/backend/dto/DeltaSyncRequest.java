@@ -0,0 +1,14 @@
+package com.itsvitaliio.backend.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeltaSyncRequest {
+    private Long baseRevision; // Revision the client's operations were made against
+    private List<NoteChildOperation> operations; // Applied in order
+}
@@ -0,0 +1,14 @@
+package com.itsvitaliio.backend.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeltaSyncResponse {
+    private long revision;
+    private Map<String, String> assignedIds; // Client temporary ID -> server NoteChild ID
+}
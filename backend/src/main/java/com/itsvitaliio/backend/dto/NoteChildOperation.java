@@ -0,0 +1,25 @@
+package com.itsvitaliio.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteChildOperation {
+    private Kind op;
+    private String id;        // NoteChild ID, or a client-chosen temporary ID for inserts
+    private String type;      // 'text' or 'image', only used by inserts
+    private String content;   // Text content for inserts and content updates
+    private String imagePath; // Image path for inserts and content updates of image children
+    private Integer position; // Target position for inserts and moves
+
+    public enum Kind {
+        @JsonProperty("insert") INSERT,
+        @JsonProperty("update-content") UPDATE_CONTENT,
+        @JsonProperty("move") MOVE,
+        @JsonProperty("delete") DELETE
+    }
+}
@@ -0,0 +1,16 @@
+package com.itsvitaliio.backend.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+// Row of the notes list, built straight from a JPQL constructor expression
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteListItemDto {
+    private String id;
+    private String title;
+    private LocalDateTime lastInteractedWith;
+}
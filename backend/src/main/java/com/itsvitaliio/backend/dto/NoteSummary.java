@@ -0,0 +1,13 @@
+package com.itsvitaliio.backend.dto;
+
+import java.time.LocalDateTime;
+
+// Projection of NoteRepository.findSummariesByUserId: one row per note with block counts and a text preview
+public interface NoteSummary {
+    String getId();
+    String getTitle();
+    LocalDateTime getLastInteractedWith();
+    Long getChildCount();
+    Long getImageCount();
+    String getPreview(); // Start of the first text block, null when the note has none
+}
@@ -0,0 +1,31 @@
+package com.itsvitaliio.backend.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchResultDto {
+    private String noteId;
+    private List<BlockMatch> blocks; // Matching text blocks, in no particular order
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BlockMatch {
+        private String blockId; // NoteChild ID
+        private List<Highlight> highlights;
+    }
+
+    // Character offsets into the block's content, end exclusive
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Highlight {
+        private int start;
+        private int end;
+    }
+}
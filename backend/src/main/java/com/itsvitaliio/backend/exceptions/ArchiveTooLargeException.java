@@ -0,0 +1,7 @@
+package com.itsvitaliio.backend.exceptions;
+
+public class ArchiveTooLargeException extends RuntimeException {
+    public ArchiveTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package com.itsvitaliio.backend.exceptions;
+
+public class RevisionConflictException extends RuntimeException {
+    private final long currentRevision;
+
+    public RevisionConflictException(String message, long currentRevision) {
+        super(message);
+        this.currentRevision = currentRevision;
+    }
+
+    public long getCurrentRevision() {
+        return currentRevision;
+    }
+}
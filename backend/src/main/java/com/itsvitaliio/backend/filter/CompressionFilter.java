@@ -0,0 +1,141 @@
+package com.itsvitaliio.backend.filter;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import com.itsvitaliio.backend.config.CompressionProperties;
+import com.itsvitaliio.backend.utilities.CompressingResponseWrapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+// Compresses response bodies for clients that accept it: zstd when offered, which takes a fraction of
+// gzip's CPU for a similar ratio, otherwise gzip. Runs outside everything else that writes the response.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class CompressionFilter extends OncePerRequestFilter {
+
+    static final String ZSTD = "zstd";
+    static final String GZIP = "gzip";
+
+    private final CompressionProperties properties;
+    private final Set<String> mimeTypes;
+    // Registered once per encoding, so a response only increments them
+    private final Map<String, Counter> originalBytes;
+    private final Map<String, Counter> sentBytes;
+
+    public CompressionFilter(CompressionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.mimeTypes = properties.getMimeTypes().stream()
+                .map(mimeType -> mimeType.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        this.originalBytes = Map.of(
+                ZSTD, byteCounter(meterRegistry, "http.server.compression.original", "Response bytes before compression", ZSTD),
+                GZIP, byteCounter(meterRegistry, "http.server.compression.original", "Response bytes before compression", GZIP));
+        this.sentBytes = Map.of(
+                ZSTD, byteCounter(meterRegistry, "http.server.compression.sent", "Compressed response bytes sent", ZSTD),
+                GZIP, byteCounter(meterRegistry, "http.server.compression.sent", "Compressed response bytes sent", GZIP));
+    }
+
+    private static Counter byteCounter(MeterRegistry meterRegistry, String name, String description, String encoding) {
+        return Counter.builder(name)
+                .description(description)
+                .baseUnit("bytes")
+                .tag("encoding", encoding)
+                .register(meterRegistry);
+    }
+
+    @SuppressWarnings("null")
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String encoding = properties.isEnabled() ? negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING)) : null;
+        if (encoding == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        CompressingResponseWrapper wrapper = new CompressingResponseWrapper(request, response, encoding,
+                compressor(encoding), properties.getMinResponseSize(), mimeTypes);
+        filterChain.doFilter(request, wrapper);
+        wrapper.finish();
+        if (wrapper.isCompressed()) {
+            originalBytes.get(encoding).increment(wrapper.getOriginalBytes());
+            sentBytes.get(encoding).increment(wrapper.getCompressedBytes());
+        }
+    }
+
+    private CompressingResponseWrapper.Compressor compressor(String encoding) {
+        if (ZSTD.equals(encoding)) {
+            int level = properties.getZstdLevel();
+            return out -> new ZstdOutputStream(out, level);
+        }
+        int level = properties.getGzipLevel();
+        return out -> new LeveledGzipOutputStream(out, level);
+    }
+
+    // zstd if the client accepts it, gzip otherwise, or null to send the body as it is
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+        Double zstd = null;
+        Double gzip = null;
+        Double any = null;
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = quality(parts);
+            switch (coding) {
+                case ZSTD -> zstd = quality;
+                case GZIP, "x-gzip" -> gzip = quality;
+                case "*" -> any = quality;
+                default -> {
+                }
+            }
+        }
+        // Codings the client did not list fall back to the weight of "*"
+        if ((zstd != null ? zstd : any != null ? any : 0) > 0) {
+            return ZSTD;
+        }
+        if ((gzip != null ? gzip : any != null ? any : 0) > 0) {
+            return GZIP;
+        }
+        return null;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static class LeveledGzipOutputStream extends GZIPOutputStream {
+        LeveledGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, 8192);
+            def.setLevel(level);
+        }
+    }
+}
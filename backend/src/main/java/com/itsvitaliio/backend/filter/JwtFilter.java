@@ -2,6 +2,7 @@ package com.itsvitaliio.backend.filter;
 
 import com.itsvitaliio.backend.services.UserService;
 import com.itsvitaliio.backend.utilities.JwtUtil;
+import io.jsonwebtoken.JwtException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -20,6 +21,9 @@ import java.io.IOException;
 @Component
 public class JwtFilter extends OncePerRequestFilter {
 
+    // Request attribute holding the ID of the verified caller; controllers read it instead of re-parsing the token
+    public static final String AUTHENTICATED_USER_ID = JwtFilter.class.getName() + ".userId";
+
     @Autowired
     private JwtUtil jwtUtil;
 
@@ -31,11 +35,15 @@ public class JwtFilter extends OncePerRequestFilter {
         final String authorizationHeader = request.getHeader("Authorization");
         // System.out.println("JWT Filter triggered");
         String userId = null;
-        String jwt = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
-            userId = jwtUtil.extractUserId(jwt);
+            String jwt = authorizationHeader.substring(7);
+            try {
+                // Signature and expiry are checked here, once per request
+                userId = jwtUtil.verify(jwt).getSubject();
+            } catch (JwtException | IllegalArgumentException ex) {
+                // System.out.println("Invalid or expired token");
+            }
 
             //System.out.println("Authenticating user " + userId);
         }
@@ -43,16 +51,12 @@ public class JwtFilter extends OncePerRequestFilter {
         if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
             try {
                 UserDetails userDetails = userService.loadUserById(userId);
-                if (jwtUtil.validateToken(jwt)) {
-                    // System.out.println("Token valid.");
-                    UsernamePasswordAuthenticationToken authenticationToken =
-                            new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                    authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authenticationToken);
-                    // System.out.println("User authenticated.");
-                }else{
-                   // System.out.println("Token Expired!");
-                }
+                UsernamePasswordAuthenticationToken authenticationToken =
+                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+                request.setAttribute(AUTHENTICATED_USER_ID, userId);
+                // System.out.println("User authenticated.");
             } catch (Exception ex) {
                 // System.out.println("User not found: " + userId);
             }
@@ -60,4 +64,3 @@ public class JwtFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 }
-
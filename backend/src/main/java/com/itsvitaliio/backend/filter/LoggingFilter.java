@@ -1,5 +1,6 @@
 package com.itsvitaliio.backend.filter;
 
+import com.itsvitaliio.backend.config.RequestLoggingProperties;
 import com.itsvitaliio.backend.utilities.RequestWrapper;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -9,31 +10,64 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Component
 public class LoggingFilter extends OncePerRequestFilter {
 
+    private final RequestLoggingProperties properties;
+    private final RequestLogWriter requestLogWriter;
+
+    public LoggingFilter(RequestLoggingProperties properties, RequestLogWriter requestLogWriter) {
+        this.properties = properties;
+        this.requestLogWriter = requestLogWriter;
+    }
+
     @SuppressWarnings("null")
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
+        boolean sampled = isSampled(request);
+        if (!sampled) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        // Only requests that carry a non-multipart body are wrapped; the wrapper keeps a bounded prefix.
+        // Credential endpoints are logged without their body.
+        RequestWrapper wrappedRequest = hasBody(request) && !isMultipartContent(request)
+                && properties.isBodyLoggedFor(request.getRequestURI())
+                ? new RequestWrapper(request, properties.getMaxBodyBytes())
+                : null;
         try {
-            System.out.println("LoggingFilter triggered for request: " + request.getRequestURI());
-            if (!isMultipartContent(request)) {
-                // System.out.println("Request is not multipart, wrapping request.");
-                RequestWrapper wrappedRequest = new RequestWrapper(request);
-                // System.out.println("Wrapped request body: " + wrappedRequest.getBody());
-                filterChain.doFilter(wrappedRequest, response);
-            } else {
-                // System.out.println("Request is multipart, proceeding without wrapping.");
-                filterChain.doFilter(request, response);
-            }
+            filterChain.doFilter(wrappedRequest != null ? wrappedRequest : request, response);
         } catch (Exception e) {
             // System.out.println("Error in LoggingFilter: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            requestLogWriter.submit(new RequestLogWriter.Entry(
+                    request.getMethod(),
+                    request.getRequestURI(),
+                    response.getStatus(),
+                    (System.nanoTime() - start) / 1_000_000,
+                    wrappedRequest != null ? wrappedRequest.getBody() : null,
+                    wrappedRequest != null && wrappedRequest.isTruncated()));
         }
     }
 
+    private boolean isSampled(HttpServletRequest request) {
+        if (!properties.isEnabled()) {
+            return false;
+        }
+        double rate = properties.sampleRateFor(request.getRequestURI());
+        return rate >= 1.0 || ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    private boolean hasBody(HttpServletRequest request) {
+        return !"GET".equalsIgnoreCase(request.getMethod()) && request.getContentLengthLong() != 0;
+    }
+
     private boolean isMultipartContent(HttpServletRequest request) {
         String contentType = request.getContentType();
         // System.out.println("Request Content-Type: " + contentType);
@@ -0,0 +1,85 @@
+package com.itsvitaliio.backend.filter;
+
+import com.itsvitaliio.backend.config.RequestLoggingProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hands request records to a single background writer through a bounded queue.
+// Request threads only ever offer(); when the writer falls behind, records are dropped and counted.
+@Component
+public class RequestLogWriter implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger("notatky.requests");
+
+    private final BlockingQueue<Entry> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public RequestLogWriter(RequestLoggingProperties properties) {
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.worker = new Thread(this::drain, "request-log-writer");
+        this.worker.setDaemon(true);
+    }
+
+    @PostConstruct
+    void start() {
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(2));
+    }
+
+    public void submit(Entry entry) {
+        if (!queue.offer(entry)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void drain() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry entry = queue.poll(250, TimeUnit.MILLISECONDS);
+                if (entry != null) {
+                    log.info("method={} uri={} status={} durationMs={} bodyTruncated={} body={}",
+                            entry.method(), entry.uri(), entry.status(), entry.durationMillis(),
+                            entry.bodyTruncated(), entry.body());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Never let a bad record kill the writer
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("request.log.queue.size", queue, BlockingQueue::size)
+                .description("Request log records waiting to be written")
+                .register(registry);
+        FunctionCounter.builder("request.log.dropped", dropped, AtomicLong::get)
+                .description("Request log records dropped because the queue was full")
+                .register(registry);
+    }
+
+    public record Entry(String method, String uri, int status, long durationMillis,
+                        String body, boolean bodyTruncated) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.itsvitaliio.backend.filter;
+
+import com.itsvitaliio.backend.config.StatementBudgetProperties;
+import com.itsvitaliio.backend.utilities.StatementCounter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// Counts the SQL statements each request runs, publishes them per endpoint and
+// logs requests that go over their budget, so N+1 regressions show up without a profiler
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class StatementBudgetFilter extends OncePerRequestFilter {
+
+    // Set on the request once it completes, for tests that pin an endpoint's statement count
+    public static final String STATEMENT_COUNT_ATTRIBUTE = StatementBudgetFilter.class.getName() + ".statementCount";
+
+    private final StatementBudgetProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public StatementBudgetFilter(StatementBudgetProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @SuppressWarnings("null")
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!properties.isEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        try (StatementCounter.Scope scope = StatementCounter.open()) {
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                record(request, scope.count());
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, long statements) {
+        request.setAttribute(STATEMENT_COUNT_ATTRIBUTE, statements);
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        DistributionSummary.builder("http.server.requests.statements")
+                .description("SQL statements run while handling a request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry)
+                .record(statements);
+
+        int budget = properties.budgetFor(uri);
+        if (statements > budget) {
+            System.err.println("StatementBudgetFilter - " + request.getMethod() + " " + uri
+                    + " ran " + statements + " statements, budget is " + budget);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.itsvitaliio.backend.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Progress of one account deletion. Kept after the user row is gone so the status stays readable
+// by whoever holds the ID, and so an interrupted purge resumes where it stopped.
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "account_deletions",
+       indexes = @Index(name = "idx_account_deletions_completed_at", columnList = "completed_at"))
+public class AccountDeletion {
+    @Id
+    private String id = UUID.randomUUID().toString();
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "requested_at", nullable = false)
+    private LocalDateTime requestedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Column(name = "notes_total", nullable = false)
+    private long notesTotal;
+
+    @Column(name = "notes_purged", nullable = false)
+    private long notesPurged;
+
+    @Column(name = "files_purged", nullable = false)
+    private long filesPurged;
+}
@@ -11,7 +11,10 @@ import lombok.AllArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "image_nodes")
+@Table(name = "image_nodes", indexes = {
+        @Index(name = "idx_image_nodes_content_hash", columnList = "content_hash"),
+        @Index(name = "idx_image_nodes_image_path", columnList = "image_path")
+})
 public class ImageNode {
     @Id
     private String id = UUID.randomUUID().toString();
@@ -19,11 +22,28 @@ public class ImageNode {
     @Column(name = "image_path", nullable = false)
     private String imagePath;
 
+    // SHA-256 of the file; identical uploads share one file, referenced by every row with the same hash.
+    // Null for images stored before content addressing.
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "size_bytes")
+    private Long sizeBytes;
+
+    public ImageNode(String id, String imagePath) {
+        this.id = id;
+        this.imagePath = imagePath;
+    }
+
     @Override
     public String toString() {
         return "ImageNode{" +
                 "id='" + id + '\'' +
                 ", imagePath='" + imagePath + '\'' +
+                ", contentHash='" + contentHash + '\'' +
                 '}';
     }
 }
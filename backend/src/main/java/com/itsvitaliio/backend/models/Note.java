@@ -21,6 +21,10 @@ public class Note {
 
     @Column(name = "last_interacted_with", nullable = false)
     private LocalDateTime lastInteractedWith;
+
+    // Incremented by every change to the note's children, used by delta sync clients
+    @Column(name = "revision", nullable = false)
+    private long revision;
     
     @Override
     public String toString() {
@@ -28,6 +32,7 @@ public class Note {
                 "id='" + id + '\'' +
                 ", title='" + title + '\'' +
                 ", lastInteractedWith=" + lastInteractedWith +
+                ", revision=" + revision +
                 '}';
     }
 }
@@ -10,7 +10,10 @@ import lombok.AllArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "note_children")
+@Table(name = "note_children", indexes = {
+        @Index(name = "idx_note_children_note_sort_key", columnList = "note_id, sort_key"),
+        @Index(name = "idx_note_children_child_id", columnList = "child_id")
+})
 public class NoteChild {
     @Id
     private String id = UUID.randomUUID().toString();
@@ -24,8 +27,13 @@ public class NoteChild {
     @Column(name = "type", nullable = false)
     private String type;
 
-    @Column(name = "position", nullable = false)
-    private int position;
+    // Dense index from before sort keys existed; only read to backfill sortKey on older rows, null on newer ones
+    @Column(name = "position")
+    private Integer position;
+
+    // Siblings are ordered by this key alone (see SortKeys), so an insert or move writes one row
+    @Column(name = "sort_key", length = 255)
+    private String sortKey;
 
     // Assuming you're not using a relationship to the Note entity directly
     public void setNoteId(String noteId) {
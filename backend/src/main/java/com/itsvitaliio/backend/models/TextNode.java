@@ -17,7 +17,7 @@ public class TextNode {
     @Id
     private String id; // We will handle ID assignment in the constructor or service
 
-    @Column(name = "content", nullable = false)
+    @Column(name = "content", nullable = false, columnDefinition = "TEXT")
     private String content;
 
     // Add a method to set the ID if it's null
@@ -3,6 +3,7 @@ package com.itsvitaliio.backend.models;
 import lombok.Data;
 import jakarta.persistence.*;
 
+import java.time.LocalDateTime;
 import java.util.Set;
 
 @Entity
@@ -16,6 +17,15 @@ public class User {
     private String email;
     private String password;
 
+    // Set when the owner asks to delete the account; the user can no longer sign in and
+    // AccountDeletionJob removes the row once their notes are gone
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
+    // Incremented by every change to the user's notes list (create, rename, delete, import)
+    @Column(name = "notes_revision", nullable = false)
+    private long notesRevision;
+
     @ElementCollection(fetch = FetchType.EAGER)
     private Set<String> roles;
 
@@ -0,0 +1,15 @@
+package com.itsvitaliio.backend.repositories;
+
+import com.itsvitaliio.backend.models.AccountDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AccountDeletionRepository extends JpaRepository<AccountDeletion, String> {
+    List<AccountDeletion> findByCompletedAtIsNullOrderByRequestedAtAsc();
+    Optional<AccountDeletion> findFirstByUserIdAndCompletedAtIsNull(String userId);
+    long countByCompletedAtIsNull();
+}
@@ -1,9 +1,68 @@
 package com.itsvitaliio.backend.repositories;
 
 import com.itsvitaliio.backend.models.ImageNode;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
-public interface ImageNodeRepository extends JpaRepository<ImageNode, String> {
+public interface ImageNodeRepository extends JpaRepository<ImageNode, String>, InsertOnlyRepository<ImageNode> {
+
+    // Number of rows sharing a content-addressed file; the file is unreferenced once this reaches zero
+    long countByContentHash(String contentHash);
+
+    // Same for images stored before content addressing, which are unique per path
+    boolean existsByImagePath(String imagePath);
+
+    // Which of the given hashes and paths still have a row, looked up a chunk of files at a time
+    @Query("select distinct i.contentHash from ImageNode i where i.contentHash in :contentHashes")
+    List<String> findReferencedContentHashes(@Param("contentHashes") Collection<String> contentHashes);
+
+    @Query("select distinct i.imagePath from ImageNode i where i.imagePath in :imagePaths")
+    List<String> findReferencedImagePaths(@Param("imagePaths") Collection<String> imagePaths);
+
+    // (contentHash, imagePath) of the files behind the image blocks of the given notes
+    @Query("select distinct i.contentHash, i.imagePath from ImageNode i " +
+           "join NoteChild c on c.childId = i.id " +
+           "where c.noteId in :noteIds and lower(c.type) = 'image'")
+    List<Object[]> findFilesByNoteIdIn(@Param("noteIds") Collection<String> noteIds);
+
+    // (contentHash, imagePath) of every distinct file behind a user's image blocks, read forward-only
+    // for the account export. Must be consumed inside a transaction and closed.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select distinct i.contentHash, i.imagePath from ImageNode i " +
+           "join NoteChild c on c.childId = i.id " +
+           "join UserNote un on un.note.id = c.noteId " +
+           "where un.user.id = :userId and lower(c.type) = 'image'")
+    Stream<Object[]> streamFilesByUserId(@Param("userId") String userId);
+
+    // Must run before the owning note_children rows are removed
+    @Modifying(flushAutomatically = true)
+    @Query("delete from ImageNode i where i.id in " +
+           "(select c.childId from NoteChild c where c.noteId in :noteIds and lower(c.type) = 'image')")
+    int deleteByNoteIdIn(@Param("noteIds") Collection<String> noteIds);
+
+    // IDs of rows no note child points to, in ID order after the given one, for keyset paging
+    @Query("select i.id from ImageNode i where i.id > :after " +
+           "and not exists (select 1 from NoteChild c where c.childId = i.id) order by i.id")
+    List<String> findOrphanIdsAfter(@Param("after") String after, Pageable pageable);
+
+    // Re-checks the condition, so a row a note child points to again is kept
+    @Modifying
+    @Query("delete from ImageNode i where i.id in :ids " +
+           "and not exists (select 1 from NoteChild c where c.childId = i.id)")
+    int deleteOrphansByIdIn(@Param("ids") Collection<String> ids);
 }
@@ -0,0 +1,8 @@
+package com.itsvitaliio.backend.repositories;
+
+// Fragment for entities with application-assigned IDs. save() would merge them,
+// costing a SELECT per row before the INSERT; insert() persists directly so the
+// statements can be batched.
+public interface InsertOnlyRepository<T> {
+    void insert(T entity);
+}
@@ -0,0 +1,15 @@
+package com.itsvitaliio.backend.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+public class InsertOnlyRepositoryImpl<T> implements InsertOnlyRepository<T> {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void insert(T entity) {
+        entityManager.persist(entity);
+    }
+}
@@ -1,21 +1,58 @@
 package com.itsvitaliio.backend.repositories;
 
 import com.itsvitaliio.backend.models.NoteChild;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface NoteChildRepository extends JpaRepository<NoteChild, String> {
+public interface NoteChildRepository extends JpaRepository<NoteChild, String>, InsertOnlyRepository<NoteChild> {
     Optional<NoteChild> findByNoteIdAndChildId(String noteId, String childId);
     boolean existsByNoteIdAndChildId(String noteId, String childId); 
     List<NoteChild> findByNoteIdIn(List<String> noteIds);
 
-    // Corrected method
-    boolean existsByNoteIdAndPosition(String noteId, int position);
-    List<NoteChild> findByNoteIdAndPositionGreaterThanEqual(String noteId, int position);
     List<NoteChild> findByNoteId(String noteId);
-    
+    List<NoteChild> findByNoteIdOrderBySortKeyAsc(String noteId);
+    Optional<NoteChild> findByIdAndNoteId(String id, String noteId);
+
+    // Notes with rows still lacking a sort key, or with keys long enough to be worth rebalancing
+    @Query("select distinct c.noteId from NoteChild c where c.sortKey is null or length(c.sortKey) > :maxLength")
+    List<String> findNoteIdsNeedingRebalance(@Param("maxLength") int maxLength);
+
+    // (noteChildId, noteId, content) for every text block a user owns; used to build a search index partition
+    @Query("select c.id, c.noteId, t.content from NoteChild c " +
+           "join TextNode t on t.id = c.childId " +
+           "join UserNote un on un.note.id = c.noteId " +
+           "where un.user.id = :userId and lower(c.type) = 'text'")
+    List<Object[]> findTextBlocksByUserId(@Param("userId") String userId);
+
+    // (noteId, type, sortKey, text content, image hash, image path, image content type, image size)
+    // for every block a user owns, grouped by note in sibling order and read forward-only for the account export.
+    // Must be consumed inside a transaction and closed.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select c.noteId, c.type, c.sortKey, t.content, i.contentHash, i.imagePath, i.contentType, i.sizeBytes " +
+           "from NoteChild c " +
+           "join UserNote un on un.note.id = c.noteId " +
+           "left join TextNode t on t.id = c.childId and lower(c.type) = 'text' " +
+           "left join ImageNode i on i.id = c.childId and lower(c.type) = 'image' " +
+           "where un.user.id = :userId " +
+           "order by c.noteId, c.sortKey, c.position")
+    Stream<Object[]> streamBlocksByUserId(@Param("userId") String userId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from NoteChild c where c.noteId in :noteIds")
+    int deleteByNoteIdIn(@Param("noteIds") Collection<String> noteIds);
 }
@@ -1,14 +1,61 @@
 package com.itsvitaliio.backend.repositories;
 
+import com.itsvitaliio.backend.dto.NoteSummary;
 import com.itsvitaliio.backend.models.Note;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface NoteRepository extends JpaRepository<Note, String> {
+public interface NoteRepository extends JpaRepository<Note, String>, InsertOnlyRepository<Note> {
     //Optional<Note> findByIdAndUserId(String id, String userId);
 
-}
\ No newline at end of file
+    @Query("select n.revision from Note n where n.id = :noteId")
+    Optional<Long> findRevisionById(@Param("noteId") String noteId);
+
+    // Compare-and-set on the revision; returns 0 when the note is missing or the revision moved on
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Note n set n.revision = n.revision + 1 where n.id = :noteId and n.revision = :revision")
+    int advanceRevision(@Param("noteId") String noteId, @Param("revision") long revision);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Note n set n.revision = n.revision + 1 where n.id = :noteId")
+    int incrementRevision(@Param("noteId") String noteId);
+
+    // Row lock for maintenance that rewrites children without changing the revision
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select n from Note n where n.id = :noteId")
+    Optional<Note> lockById(@Param("noteId") String noteId);
+
+    // Dashboard data for every note of a user in a single round trip.
+    // Both counts are COUNTs, which are BIGINT on MySQL and H2 alike; a SUM would come back as DECIMAL.
+    @Query(value = "SELECT n.id AS id, n.title AS title, n.last_interacted_with AS lastInteractedWith, " +
+                   "COUNT(c.id) AS childCount, " +
+                   "COUNT(CASE WHEN c.type = 'image' THEN 1 END) AS imageCount, " +
+                   "(SELECT SUBSTRING(t.content, 1, :previewLength) FROM note_children fc " +
+                   "   JOIN text_nodes t ON t.id = fc.child_id " +
+                   "   WHERE fc.note_id = n.id AND fc.type = 'text' " +
+                   "   ORDER BY fc.sort_key LIMIT 1) AS preview " +
+                   "FROM user_notes un " +
+                   "JOIN notes n ON n.id = un.note_id " +
+                   "LEFT JOIN note_children c ON c.note_id = n.id " +
+                   "WHERE un.user_id = :userId " +
+                   "GROUP BY n.id, n.title, n.last_interacted_with " +
+                   "ORDER BY n.last_interacted_with DESC, n.id DESC",
+           nativeQuery = true)
+    List<NoteSummary> findSummariesByUserId(@Param("userId") String userId,
+                                            @Param("previewLength") int previewLength);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from Note n where n.id in :noteIds")
+    int deleteByIdIn(@Param("noteIds") Collection<String> noteIds);
+}
@@ -1,9 +1,33 @@
 package com.itsvitaliio.backend.repositories;
 
 import com.itsvitaliio.backend.models.TextNode;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
-public interface TextNodeRepository extends JpaRepository<TextNode, String> {
+public interface TextNodeRepository extends JpaRepository<TextNode, String>, InsertOnlyRepository<TextNode> {
+
+    // Must run before the owning note_children rows are removed
+    @Modifying(flushAutomatically = true)
+    @Query("delete from TextNode t where t.id in " +
+           "(select c.childId from NoteChild c where c.noteId in :noteIds and lower(c.type) = 'text')")
+    int deleteByNoteIdIn(@Param("noteIds") Collection<String> noteIds);
+
+    // IDs of rows no note child points to, in ID order after the given one, for keyset paging
+    @Query("select t.id from TextNode t where t.id > :after " +
+           "and not exists (select 1 from NoteChild c where c.childId = t.id) order by t.id")
+    List<String> findOrphanIdsAfter(@Param("after") String after, Pageable pageable);
+
+    // Re-checks the condition, so a row a note child points to again is kept
+    @Modifying
+    @Query("delete from TextNode t where t.id in :ids " +
+           "and not exists (select 1 from NoteChild c where c.childId = t.id)")
+    int deleteOrphansByIdIn(@Param("ids") Collection<String> ids);
 }
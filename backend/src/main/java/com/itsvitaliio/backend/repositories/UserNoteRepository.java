@@ -1,11 +1,22 @@
 package com.itsvitaliio.backend.repositories;
 
+import com.itsvitaliio.backend.dto.NoteListItemDto;
 import com.itsvitaliio.backend.models.UserNote;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserNoteRepository extends JpaRepository<UserNote, Long> {
@@ -14,4 +25,54 @@ public interface UserNoteRepository extends JpaRepository<UserNote, Long> {
     boolean existsByUserIdAndNoteId(String userId, String noteId);
     Optional<UserNote> findByNoteIdAndUserId(String noteId, String userId);
 
+    // Notes list projections: never instantiate User or Note, newest first with id as tie-breaker
+    @Query("select new com.itsvitaliio.backend.dto.NoteListItemDto(n.id, n.title, n.lastInteractedWith) " +
+           "from UserNote un join un.note n where un.user.id = :userId " +
+           "order by n.lastInteractedWith desc, n.id desc")
+    List<NoteListItemDto> findNoteList(@Param("userId") String userId, Pageable pageable);
+
+    @Query("select new com.itsvitaliio.backend.dto.NoteListItemDto(n.id, n.title, n.lastInteractedWith) " +
+           "from UserNote un join un.note n where un.user.id = :userId " +
+           "and (n.lastInteractedWith < :lastInteractedWith " +
+           "     or (n.lastInteractedWith = :lastInteractedWith and n.id < :noteId)) " +
+           "order by n.lastInteractedWith desc, n.id desc")
+    List<NoteListItemDto> findNoteListAfter(@Param("userId") String userId,
+                                            @Param("lastInteractedWith") LocalDateTime lastInteractedWith,
+                                            @Param("noteId") String noteId,
+                                            Pageable pageable);
+
+    @Query("select un.user.id from UserNote un where un.note.id = :noteId")
+    List<String> findUserIdsByNoteId(@Param("noteId") String noteId);
+
+    @Query("select un.note.id from UserNote un where un.user.id = :userId")
+    List<String> findNoteIdsByUserId(@Param("userId") String userId);
+
+    // A bounded slice of a user's note IDs, for work that runs in chunks
+    @Query("select un.note.id from UserNote un where un.user.id = :userId order by un.note.id")
+    List<String> findNoteIdsByUserId(@Param("userId") String userId, Pageable pageable);
+
+    long countByUserId(String userId);
+
+    // (id, title, lastInteractedWith) of every note a user owns, read forward-only for the account export.
+    // Must be consumed inside a transaction and closed.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select n.id, n.title, n.lastInteractedWith from UserNote un join un.note n " +
+           "where un.user.id = :userId order by n.id")
+    Stream<Object[]> streamNotesByUserId(@Param("userId") String userId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from UserNote un where un.user.id = :userId")
+    int deleteByUserId(@Param("userId") String userId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from UserNote un where un.note.id = :noteId")
+    int deleteByNoteId(@Param("noteId") String noteId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from UserNote un where un.note.id in :noteIds")
+    int deleteByNoteIdIn(@Param("noteIds") Collection<String> noteIds);
+
 }
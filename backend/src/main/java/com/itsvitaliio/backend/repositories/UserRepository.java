@@ -2,6 +2,9 @@ package com.itsvitaliio.backend.repositories;
 
 import com.itsvitaliio.backend.models.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -12,4 +15,11 @@ public interface UserRepository extends JpaRepository<User, String> {
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
     Optional<User> findById(String id);
+
+    @Query("select u.notesRevision from User u where u.id = :userId")
+    Optional<Long> findNotesRevisionById(@Param("userId") String userId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update User u set u.notesRevision = u.notesRevision + 1 where u.id = :userId")
+    int incrementNotesRevision(@Param("userId") String userId);
 }
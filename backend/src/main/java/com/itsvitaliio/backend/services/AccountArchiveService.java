@@ -0,0 +1,424 @@
+package com.itsvitaliio.backend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itsvitaliio.backend.dto.ArchiveImportResult;
+import com.itsvitaliio.backend.dto.ArchiveRecord;
+import com.itsvitaliio.backend.exceptions.ArchiveTooLargeException;
+import com.itsvitaliio.backend.exceptions.InvalidEntryException;
+import com.itsvitaliio.backend.models.ImageNode;
+import com.itsvitaliio.backend.models.Note;
+import com.itsvitaliio.backend.models.NoteChild;
+import com.itsvitaliio.backend.models.TextNode;
+import com.itsvitaliio.backend.models.UserNote;
+import com.itsvitaliio.backend.repositories.ImageNodeRepository;
+import com.itsvitaliio.backend.repositories.NoteChildRepository;
+import com.itsvitaliio.backend.repositories.NoteRepository;
+import com.itsvitaliio.backend.repositories.TextNodeRepository;
+import com.itsvitaliio.backend.repositories.UserNoteRepository;
+import com.itsvitaliio.backend.repositories.UserRepository;
+import com.itsvitaliio.backend.utilities.SortKeys;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+// Whole-account backup as a ZIP: image files under images/ first, then notes.ndjson.
+// Both directions stream: export reads forward-only cursors straight into the response, and import
+// writes in fixed-size transactions. Memory depends on the number of notes, not blocks or image bytes.
+@Service
+public class AccountArchiveService {
+
+    static final String NOTES_ENTRY = "notes.ndjson";
+    static final String IMAGES_PREFIX = "images/";
+    private static final int IMPORT_BATCH_SIZE = 500;
+
+    private final UserRepository userRepository;
+    private final UserNoteRepository userNoteRepository;
+    private final NoteRepository noteRepository;
+    private final NoteChildRepository noteChildRepository;
+    private final TextNodeRepository textNodeRepository;
+    private final ImageNodeRepository imageNodeRepository;
+    private final ImageStore imageStore;
+    private final SearchIndexService searchIndexService;
+    private final SortKeyRebalancer sortKeyRebalancer;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate writeTransaction;
+    // An export keeps its read-only transaction, and so a pooled connection, for the whole download
+    private final Semaphore exportPermits;
+    // Uncompressed bytes an import may read, per entry and in total; a small archive can inflate to any size
+    private final long maxEntryBytes;
+    private final long maxTotalBytes;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public AccountArchiveService(UserRepository userRepository,
+                                 UserNoteRepository userNoteRepository,
+                                 NoteRepository noteRepository,
+                                 NoteChildRepository noteChildRepository,
+                                 TextNodeRepository textNodeRepository,
+                                 ImageNodeRepository imageNodeRepository,
+                                 ImageStore imageStore,
+                                 SearchIndexService searchIndexService,
+                                 SortKeyRebalancer sortKeyRebalancer,
+                                 ObjectMapper objectMapper,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${account-archive.max-concurrent-exports:2}") int maxConcurrentExports,
+                                 @Value("${account-archive.max-entry-bytes:104857600}") long maxEntryBytes,
+                                 @Value("${account-archive.max-total-bytes:2147483648}") long maxTotalBytes) {
+        this.userRepository = userRepository;
+        this.userNoteRepository = userNoteRepository;
+        this.noteRepository = noteRepository;
+        this.noteChildRepository = noteChildRepository;
+        this.textNodeRepository = textNodeRepository;
+        this.imageNodeRepository = imageNodeRepository;
+        this.imageStore = imageStore;
+        this.searchIndexService = searchIndexService;
+        this.sortKeyRebalancer = sortKeyRebalancer;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.exportPermits = new Semaphore(maxConcurrentExports);
+        this.maxEntryBytes = maxEntryBytes;
+        this.maxTotalBytes = maxTotalBytes;
+    }
+
+    // Callers that get true must call finishExport() once the export has ended, however it ended
+    public boolean tryStartExport() {
+        return exportPermits.tryAcquire();
+    }
+
+    public void finishExport() {
+        exportPermits.release();
+    }
+
+    // One read-only transaction, so the files, notes and blocks all come from the same snapshot
+    public void exportAccount(String userId, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try {
+                    writeImages(userId, zip);
+                    writeNotes(userId, zip);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        // The response stream belongs to the container, so the archive is finished rather than closed
+        zip.finish();
+        zip.flush();
+    }
+
+    private void writeImages(String userId, ZipOutputStream zip) throws IOException {
+        // Images are already compressed; deflating them again only costs CPU
+        zip.setLevel(Deflater.NO_COMPRESSION);
+        try (Stream<Object[]> files = imageNodeRepository.streamFilesByUserId(userId)) {
+            Iterator<Object[]> rows = files.iterator();
+            while (rows.hasNext()) {
+                Object[] row = rows.next();
+                String contentHash = (String) row[0];
+                String imagePath = (String) row[1];
+                Path file = Paths.get(imagePath);
+                if (!imageStore.contains(file)) {
+                    // The row names a path a client chose, not a stored image
+                    System.err.println("AccountArchiveService - Skipping image outside the store " + imagePath);
+                    continue;
+                }
+                if (!Files.isRegularFile(file)) {
+                    System.err.println("AccountArchiveService - Skipping missing image file " + imagePath);
+                    continue;
+                }
+                zip.putNextEntry(new ZipEntry(imageEntryName(contentHash, imagePath)));
+                Files.copy(file, zip);
+                zip.closeEntry();
+            }
+        }
+    }
+
+    private void writeNotes(String userId, ZipOutputStream zip) throws IOException {
+        zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+        zip.putNextEntry(new ZipEntry(NOTES_ENTRY));
+
+        try (Stream<Object[]> notes = userNoteRepository.streamNotesByUserId(userId)) {
+            Iterator<Object[]> rows = notes.iterator();
+            while (rows.hasNext()) {
+                Object[] row = rows.next();
+                ArchiveRecord note = new ArchiveRecord();
+                note.setRecord(ArchiveRecord.NOTE);
+                note.setId((String) row[0]);
+                note.setTitle((String) row[1]);
+                note.setLastInteractedWith((LocalDateTime) row[2]);
+                writeLine(zip, note);
+            }
+        }
+
+        try (Stream<Object[]> blocks = noteChildRepository.streamBlocksByUserId(userId)) {
+            Iterator<Object[]> rows = blocks.iterator();
+            while (rows.hasNext()) {
+                Object[] row = rows.next();
+                ArchiveRecord block = new ArchiveRecord();
+                block.setRecord(ArchiveRecord.BLOCK);
+                block.setNoteId((String) row[0]);
+                block.setType(((String) row[1]).toLowerCase());
+                block.setSortKey((String) row[2]);
+                if ("text".equals(block.getType())) {
+                    block.setContent(row[3] != null ? (String) row[3] : "");
+                } else if ("image".equals(block.getType()) && row[5] != null) {
+                    block.setFile(imageEntryName((String) row[4], (String) row[5]));
+                    block.setContentType((String) row[6]);
+                }
+                writeLine(zip, block);
+            }
+        }
+        zip.closeEntry();
+    }
+
+    private void writeLine(ZipOutputStream zip, ArchiveRecord record) throws IOException {
+        // Serialized to bytes first: ObjectMapper would close the stream it writes to
+        zip.write(objectMapper.writeValueAsBytes(record));
+        zip.write('\n');
+    }
+
+    // Content-addressed files are named by their hash; files stored before hashing keep their file name
+    private static String imageEntryName(String contentHash, String imagePath) {
+        return contentHash != null
+                ? IMAGES_PREFIX + contentHash
+                : IMAGES_PREFIX + "legacy/" + Paths.get(imagePath).getFileName();
+    }
+
+    // Adds the archive's notes to the account under new IDs, next to the notes it already has.
+    // Each batch commits on its own, so a failure part way keeps the notes imported up to that point.
+    public ArchiveImportResult importAccount(String userId, InputStream in) throws IOException {
+        if (!userRepository.existsById(userId)) {
+            throw new InvalidEntryException("User not found");
+        }
+
+        ImportBatch batch = new ImportBatch(userId);
+        ZipInputStream zip = new ZipInputStream(in, StandardCharsets.UTF_8);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            String name = entry.getName();
+            if (entry.isDirectory()) {
+                continue;
+            }
+            InputStream entryIn = new CappedEntryStream(zip, name, batch);
+            if (name.startsWith(IMAGES_PREFIX)) {
+                // Hashed and deduplicated by the store like any upload; rows are created when a block refers to it
+                batch.storedImages.put(name, imageStore.store(entryIn));
+            } else if (name.equals(NOTES_ENTRY)) {
+                // Not closed: closing the reader would close the whole archive
+                BufferedReader reader = new BufferedReader(new InputStreamReader(entryIn, StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    batch.add(objectMapper.readValue(line, ArchiveRecord.class));
+                    if (batch.pending() >= IMPORT_BATCH_SIZE) {
+                        writeBatch(batch);
+                    }
+                }
+            } else {
+                System.out.println("AccountArchiveService - Ignoring unknown archive entry " + name);
+            }
+        }
+        writeBatch(batch);
+
+        // The user's search partition is rebuilt from the database on their next search
+        searchIndexService.dropUser(userId);
+        batch.notesToRebalance.forEach(sortKeyRebalancer::requestRebalance);
+        return new ArchiveImportResult(batch.noteIds.size(), batch.blockCount,
+                batch.storedImages.size(), batch.skippedBlocks);
+    }
+
+    private void writeBatch(ImportBatch batch) {
+        if (batch.pending() == 0) {
+            return;
+        }
+        writeTransaction.executeWithoutResult(status -> {
+            batch.notes.forEach(noteRepository::insert);
+            // user_notes rows get identity keys and are inserted immediately, so their notes must exist first
+            entityManager.flush();
+            batch.notes.forEach(note -> userNoteRepository.save(
+                    new UserNote(null, userRepository.getReferenceById(batch.userId), note)));
+            batch.textNodes.forEach(textNodeRepository::insert);
+            batch.imageNodes.forEach(imageNodeRepository::insert);
+            batch.noteChildren.forEach(noteChildRepository::insert);
+            userRepository.incrementNotesRevision(batch.userId);
+            entityManager.flush();
+            // Under open-in-view every batch shares one persistence context; keep it from growing
+            entityManager.clear();
+        });
+        batch.clear();
+    }
+
+    // Counts what is read from one entry against maxEntryBytes and, across entries, maxTotalBytes
+    private class CappedEntryStream extends FilterInputStream {
+        private final String name;
+        private final ImportBatch batch;
+        private long entryBytes;
+
+        CappedEntryStream(InputStream zip, String name, ImportBatch batch) {
+            super(zip);
+            this.name = name;
+            this.batch = batch;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        private void count(int bytes) {
+            entryBytes += bytes;
+            batch.archiveBytes += bytes;
+            if (entryBytes > maxEntryBytes) {
+                throw new ArchiveTooLargeException("Entry " + name + " is larger than " + maxEntryBytes + " bytes");
+            }
+            if (batch.archiveBytes > maxTotalBytes) {
+                throw new ArchiveTooLargeException("Archive is larger than " + maxTotalBytes + " bytes uncompressed");
+            }
+        }
+    }
+
+    // Rows waiting for the next transaction, plus the per-note state that has to outlive a batch
+    private static class ImportBatch {
+        final String userId;
+        final Map<String, ImageStore.StoredImage> storedImages = new HashMap<>(); // Entry name -> stored file
+        final Map<String, String> noteIds = new HashMap<>();                       // Archive note ID -> new ID
+        final Map<String, String> lastSortKeys = new HashMap<>();                  // New note ID -> last key used
+        final Set<String> notesToRebalance = new LinkedHashSet<>();
+        final List<Note> notes = new ArrayList<>();
+        final List<TextNode> textNodes = new ArrayList<>();
+        final List<ImageNode> imageNodes = new ArrayList<>();
+        final List<NoteChild> noteChildren = new ArrayList<>();
+        long archiveBytes;
+        int blockCount;
+        int skippedBlocks;
+
+        ImportBatch(String userId) {
+            this.userId = userId;
+        }
+
+        void add(ArchiveRecord record) {
+            if (ArchiveRecord.NOTE.equals(record.getRecord())) {
+                addNote(record);
+            } else if (ArchiveRecord.BLOCK.equals(record.getRecord())) {
+                addBlock(record);
+            } else {
+                throw new InvalidEntryException("Unknown archive record " + record.getRecord());
+            }
+        }
+
+        private void addNote(ArchiveRecord record) {
+            if (record.getId() == null || noteIds.containsKey(record.getId())) {
+                throw new InvalidEntryException("Archive note without a unique id");
+            }
+            Note note = new Note();
+            note.setId(UUID.randomUUID().toString());
+            note.setTitle(record.getTitle() != null ? record.getTitle() : "");
+            note.setLastInteractedWith(record.getLastInteractedWith() != null
+                    ? record.getLastInteractedWith()
+                    : LocalDateTime.now());
+            noteIds.put(record.getId(), note.getId());
+            notes.add(note);
+        }
+
+        private void addBlock(ArchiveRecord record) {
+            String noteId = noteIds.get(record.getNoteId());
+            if (noteId == null) {
+                throw new InvalidEntryException("Archive block refers to unknown note " + record.getNoteId());
+            }
+
+            String childId = UUID.randomUUID().toString();
+            if ("text".equalsIgnoreCase(record.getType())) {
+                textNodes.add(new TextNode(childId, record.getContent() != null ? record.getContent() : ""));
+            } else if ("image".equalsIgnoreCase(record.getType())) {
+                ImageStore.StoredImage stored = record.getFile() != null ? storedImages.get(record.getFile()) : null;
+                if (stored == null) {
+                    skippedBlocks++;
+                    return;
+                }
+                imageNodes.add(new ImageNode(childId, stored.path(), stored.contentHash(),
+                        stored.contentType(), stored.sizeBytes()));
+            } else {
+                throw new InvalidEntryException("Unknown block type " + record.getType());
+            }
+
+            // Blocks arrive in display order; exported keys are reused while they keep ascending
+            String previous = lastSortKeys.get(noteId);
+            String sortKey = record.getSortKey();
+            if (!SortKeys.isValid(sortKey) || (previous != null && sortKey.compareTo(previous) <= 0)) {
+                sortKey = SortKeys.between(previous, null);
+                if (sortKey.length() > SortKeys.REBALANCE_LENGTH) {
+                    notesToRebalance.add(noteId);
+                }
+            }
+            lastSortKeys.put(noteId, sortKey);
+
+            noteChildren.add(new NoteChild(UUID.randomUUID().toString(), noteId, childId,
+                    record.getType().toLowerCase(), null, sortKey));
+            blockCount++;
+        }
+
+        int pending() {
+            return notes.size() + textNodes.size() + imageNodes.size() + noteChildren.size();
+        }
+
+        void clear() {
+            notes.clear();
+            textNodes.clear();
+            imageNodes.clear();
+            noteChildren.clear();
+        }
+    }
+}
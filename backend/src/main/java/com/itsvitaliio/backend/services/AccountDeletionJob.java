@@ -0,0 +1,218 @@
+package com.itsvitaliio.backend.services;
+
+import com.itsvitaliio.backend.dto.AccountDeletionStatus;
+import com.itsvitaliio.backend.models.AccountDeletion;
+import com.itsvitaliio.backend.repositories.AccountDeletionRepository;
+import com.itsvitaliio.backend.repositories.ImageNodeRepository;
+import com.itsvitaliio.backend.repositories.NoteChildRepository;
+import com.itsvitaliio.backend.repositories.NoteRepository;
+import com.itsvitaliio.backend.repositories.TextNodeRepository;
+import com.itsvitaliio.backend.repositories.UserNoteRepository;
+import com.itsvitaliio.backend.repositories.UserRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Purges accounts marked for deletion by UserService, a bounded chunk of notes per transaction,
+// so a large account never holds locks or a connection for long. All progress lives in the database:
+// after a restart the next run continues with whatever notes the account still has.
+@Service
+public class AccountDeletionJob implements MeterBinder {
+
+    private final AccountDeletionRepository accountDeletionRepository;
+    private final UserRepository userRepository;
+    private final UserNoteRepository userNoteRepository;
+    private final NoteRepository noteRepository;
+    private final NoteChildRepository noteChildRepository;
+    private final TextNodeRepository textNodeRepository;
+    private final ImageNodeRepository imageNodeRepository;
+    private final NoteDocumentCache noteDocumentCache;
+    private final ImageVariantService imageVariantService;
+    private final ImageStore imageStore;
+    private final TransactionTemplate writeTransaction;
+    private final int chunkSize;
+    private final Duration gracePeriod;
+
+    private final AtomicLong pendingAccounts = new AtomicLong();
+    private final AtomicLong notesPurged = new AtomicLong();
+    private final AtomicLong filesPurged = new AtomicLong();
+
+    @Autowired
+    public AccountDeletionJob(AccountDeletionRepository accountDeletionRepository,
+                              UserRepository userRepository,
+                              UserNoteRepository userNoteRepository,
+                              NoteRepository noteRepository,
+                              NoteChildRepository noteChildRepository,
+                              TextNodeRepository textNodeRepository,
+                              ImageNodeRepository imageNodeRepository,
+                              NoteDocumentCache noteDocumentCache,
+                              ImageVariantService imageVariantService,
+                              ImageStore imageStore,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${account-deletion.chunk-size:500}") int chunkSize,
+                              @Value("${image.gc.grace-period:1h}") Duration gracePeriod) {
+        this.accountDeletionRepository = accountDeletionRepository;
+        this.userRepository = userRepository;
+        this.userNoteRepository = userNoteRepository;
+        this.noteRepository = noteRepository;
+        this.noteChildRepository = noteChildRepository;
+        this.textNodeRepository = textNodeRepository;
+        this.imageNodeRepository = imageNodeRepository;
+        this.noteDocumentCache = noteDocumentCache;
+        this.imageVariantService = imageVariantService;
+        this.imageStore = imageStore;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.gracePeriod = gracePeriod;
+    }
+
+    @Scheduled(fixedDelayString = "${account-deletion.interval-ms:5000}")
+    public void runPending() {
+        List<AccountDeletion> pending = accountDeletionRepository.findByCompletedAtIsNullOrderByRequestedAtAsc();
+        pendingAccounts.set(pending.size());
+        for (AccountDeletion deletion : pending) {
+            try {
+                purge(deletion.getId());
+                pendingAccounts.decrementAndGet();
+            } catch (Exception e) {
+                // Left pending; the next run retries from the first note still present
+                System.err.println("AccountDeletionJob - Error purging account " + deletion.getUserId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public void purge(String deletionId) {
+        Chunk chunk;
+        do {
+            chunk = writeTransaction.execute(status -> purgeChunk(deletionId));
+            // Files go only after their rows are committed; a crash in between leaves orphans, never dangling rows
+            deleteUnreferencedFiles(deletionId, chunk.files());
+        } while (chunk.more());
+    }
+
+    public Optional<AccountDeletionStatus> getStatus(String deletionId) {
+        return accountDeletionRepository.findById(deletionId)
+                .map(deletion -> new AccountDeletionStatus(deletion.getId(), deletion.getCompletedAt() != null,
+                        deletion.getNotesTotal(), deletion.getNotesPurged(), deletion.getFilesPurged(),
+                        deletion.getRequestedAt(), deletion.getCompletedAt()));
+    }
+
+    private Chunk purgeChunk(String deletionId) {
+        AccountDeletion deletion = accountDeletionRepository.findById(deletionId).orElse(null);
+        if (deletion == null || deletion.getCompletedAt() != null) {
+            return new Chunk(false, List.of());
+        }
+
+        String userId = deletion.getUserId();
+        List<String> noteIds = userNoteRepository.findNoteIdsByUserId(userId, PageRequest.of(0, chunkSize));
+        if (noteIds.isEmpty()) {
+            userRepository.findById(userId).ifPresent(userRepository::delete);
+            deletion.setCompletedAt(LocalDateTime.now());
+            System.out.println("AccountDeletionJob - Deleted account " + userId + ": "
+                    + deletion.getNotesPurged() + " notes, " + deletion.getFilesPurged() + " files");
+            return new Chunk(false, List.of());
+        }
+
+        List<Object[]> files = imageNodeRepository.findFilesByNoteIdIn(noteIds);
+        noteDocumentCache.evictAll(noteIds);
+
+        // Nodes first: their deletes find the rows to remove through note_children
+        textNodeRepository.deleteByNoteIdIn(noteIds);
+        imageNodeRepository.deleteByNoteIdIn(noteIds);
+        noteChildRepository.deleteByNoteIdIn(noteIds);
+        userNoteRepository.deleteByNoteIdIn(noteIds);
+        noteRepository.deleteByIdIn(noteIds);
+
+        deletion.setNotesPurged(deletion.getNotesPurged() + noteIds.size());
+        notesPurged.addAndGet(noteIds.size());
+        return new Chunk(true, files);
+    }
+
+    // Content-addressed files can be shared with other accounts, so only files no row refers to any more are removed
+    private void deleteUnreferencedFiles(String deletionId, List<Object[]> files) {
+        if (files.isEmpty()) {
+            return;
+        }
+        long deleted = 0;
+        for (Object[] file : files) {
+            String contentHash = (String) file[0];
+            String imagePath = (String) file[1];
+            boolean referenced = contentHash != null
+                    ? imageNodeRepository.countByContentHash(contentHash) > 0
+                    : imageNodeRepository.existsByImagePath(imagePath);
+            if (referenced) {
+                continue;
+            }
+            Path original = Paths.get(imagePath);
+            if (!imageStore.contains(original)) {
+                // The row pointed somewhere a client chose; only the row goes
+                continue;
+            }
+            try {
+                // Read after the reference check: an upload deduplicating against the file bumps its mtime
+                // before its row commits, so recently touched files are left to ImageGarbageCollector
+                if (!untouchedForGracePeriod(original)) {
+                    continue;
+                }
+                imageVariantService.deleteVariants(original);
+                if (Files.deleteIfExists(original)) {
+                    deleted++;
+                }
+            } catch (IOException e) {
+                System.err.println("AccountDeletionJob - Error deleting image file " + imagePath + ": " + e.getMessage());
+            }
+        }
+
+        long count = deleted;
+        if (count > 0) {
+            filesPurged.addAndGet(count);
+            writeTransaction.executeWithoutResult(status -> accountDeletionRepository.findById(deletionId)
+                    .ifPresent(deletion -> deletion.setFilesPurged(deletion.getFilesPurged() + count)));
+        }
+    }
+
+    private boolean untouchedForGracePeriod(Path file) throws IOException {
+        try {
+            Instant modified = Files.getLastModifiedTime(file).toInstant();
+            return !modified.isAfter(Instant.now().minus(gracePeriod));
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("account.deletion.pending", pendingAccounts, AtomicLong::get)
+                .description("Accounts marked for deletion whose data is not purged yet, as of the last run")
+                .register(registry);
+        FunctionCounter.builder("account.deletion.notes.purged", notesPurged, AtomicLong::get)
+                .description("Notes removed by account deletion")
+                .register(registry);
+        FunctionCounter.builder("account.deletion.files.purged", filesPurged, AtomicLong::get)
+                .description("Image files removed by account deletion")
+                .register(registry);
+    }
+
+    private record Chunk(boolean more, List<Object[]> files) {
+    }
+}
@@ -0,0 +1,74 @@
+package com.itsvitaliio.backend.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Caps the number of threads holding a database connection with a fair semaphore.
+// With virtual threads there is no longer a request thread pool to limit concurrency, so this is where
+// bursts queue: in arrival order, for at most max-wait, and visible as db.bulkhead.* metrics.
+public class DatabaseBulkhead implements MeterBinder {
+
+    private final Semaphore permits;
+    private final int capacity;
+    private final Duration maxWait;
+    private final AtomicLong rejected = new AtomicLong();
+
+    private Timer waitTimer;
+
+    public DatabaseBulkhead(int capacity, Duration maxWait) {
+        this.permits = new Semaphore(capacity, true);
+        this.capacity = capacity;
+        this.maxWait = maxWait;
+    }
+
+    public void acquire() throws SQLException {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database permit", e);
+        }
+        if (waitTimer != null) {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (!acquired) {
+            rejected.incrementAndGet();
+            throw new SQLTransientConnectionException("No database permit available within " + maxWait.toMillis()
+                    + " ms (" + permits.getQueueLength() + " waiting)");
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        waitTimer = Timer.builder("db.bulkhead.wait")
+                .description("Time spent waiting for a database permit, timeouts included")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+        Gauge.builder("db.bulkhead.in.use", permits, p -> capacity - p.availablePermits())
+                .description("Threads currently holding a database permit")
+                .register(registry);
+        Gauge.builder("db.bulkhead.waiting", permits, Semaphore::getQueueLength)
+                .description("Threads queued for a database permit")
+                .register(registry);
+        FunctionCounter.builder("db.bulkhead.rejected", rejected, AtomicLong::get)
+                .description("Connection requests that gave up after max-wait")
+                .register(registry);
+    }
+}
@@ -0,0 +1,328 @@
+package com.itsvitaliio.backend.services;
+
+import com.itsvitaliio.backend.repositories.ImageNodeRepository;
+import com.itsvitaliio.backend.repositories.TextNodeRepository;
+import com.itsvitaliio.backend.utilities.RateLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+// Mark-and-sweep collection of what deletes and failed syncs leave behind: text and image rows no note child
+// points to, and image files no image row refers to. Rows and files are swept side by side, a chunk at a time
+// and rate limited, and nothing is removed before it has been unreferenced for the grace period.
+@Service
+public class ImageGarbageCollector implements MeterBinder {
+
+    private static final Pattern CONTENT_HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final ImageStore imageStore;
+    private final ImageVariantService imageVariantService;
+    private final TextNodeRepository textNodeRepository;
+    private final ImageNodeRepository imageNodeRepository;
+    private final TransactionTemplate writeTransaction;
+    private final Duration gracePeriod;
+    private final int chunkSize;
+    private final double operationsPerSecond;
+    private final int maxMarks;
+    private final ExecutorService executor;
+
+    // Rows have no timestamps, so each run remembers when it first saw a row unreferenced.
+    // Replaced by the row sweep of every run; runs never overlap.
+    private volatile Map<String, Instant> markedTextRows = Map.of();
+    private volatile Map<String, Instant> markedImageRows = Map.of();
+
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+    private final AtomicLong filesDeleted = new AtomicLong();
+    private final AtomicLong textRowsDeleted = new AtomicLong();
+    private final AtomicLong imageRowsDeleted = new AtomicLong();
+    private Timer runTimer;
+
+    @Autowired
+    public ImageGarbageCollector(ImageStore imageStore,
+                                 ImageVariantService imageVariantService,
+                                 TextNodeRepository textNodeRepository,
+                                 ImageNodeRepository imageNodeRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${image.gc.grace-period:1h}") Duration gracePeriod,
+                                 @Value("${image.gc.chunk-size:500}") int chunkSize,
+                                 @Value("${image.gc.operations-per-second:100}") double operationsPerSecond,
+                                 @Value("${image.gc.max-marks:100000}") int maxMarks) {
+        this.imageStore = imageStore;
+        this.imageVariantService = imageVariantService;
+        this.textNodeRepository = textNodeRepository;
+        this.imageNodeRepository = imageNodeRepository;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.gracePeriod = gracePeriod;
+        this.chunkSize = chunkSize;
+        this.operationsPerSecond = operationsPerSecond;
+        this.maxMarks = maxMarks;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "image-gc-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Scheduled(initialDelayString = "${image.gc.initial-delay-ms:600000}", fixedDelayString = "${image.gc.interval-ms:3600000}")
+    public void collect() {
+        long start = System.nanoTime();
+        long filesBefore = filesDeleted.get();
+        long bytesBefore = reclaimedBytes.get();
+        long rowsBefore = textRowsDeleted.get() + imageRowsDeleted.get();
+        Instant now = Instant.now();
+        Instant cutoff = now.minus(gracePeriod);
+
+        CompletableFuture<Void> rows = CompletableFuture.runAsync(() -> sweepRows(now, cutoff), executor);
+        CompletableFuture<Void> files = CompletableFuture.runAsync(() -> sweepFiles(cutoff), executor);
+        try {
+            CompletableFuture.allOf(rows, files).join();
+        } catch (CompletionException e) {
+            // Whatever was not reached is picked up by the next run
+            System.err.println("ImageGarbageCollector - Error collecting orphans: " + e.getCause().getMessage());
+        } finally {
+            if (runTimer != null) {
+                runTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        long rowsDeleted = textRowsDeleted.get() + imageRowsDeleted.get() - rowsBefore;
+        long filesDeletedNow = filesDeleted.get() - filesBefore;
+        if (rowsDeleted > 0 || filesDeletedNow > 0) {
+            System.out.println("ImageGarbageCollector - Deleted " + rowsDeleted + " orphaned rows and "
+                    + filesDeletedNow + " files (" + (reclaimedBytes.get() - bytesBefore) + " bytes)");
+        }
+    }
+
+    private void sweepRows(Instant now, Instant cutoff) {
+        RateLimiter limiter = new RateLimiter(operationsPerSecond);
+        try {
+            markedTextRows = sweepRows(textNodeRepository::findOrphanIdsAfter, textNodeRepository::deleteOrphansByIdIn,
+                    markedTextRows, textRowsDeleted, now, cutoff, limiter);
+            markedImageRows = sweepRows(imageNodeRepository::findOrphanIdsAfter, imageNodeRepository::deleteOrphansByIdIn,
+                    markedImageRows, imageRowsDeleted, now, cutoff, limiter);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Pages through the unreferenced rows of one table by ID; rows marked by an earlier run at least
+    // the grace period ago are deleted, the rest are marked. Returns the marks for the next run.
+    private Map<String, Instant> sweepRows(BiFunction<String, Pageable, List<String>> findOrphans,
+                                           Function<Collection<String>, Integer> deleteOrphans,
+                                           Map<String, Instant> previousMarks, AtomicLong deletedCounter,
+                                           Instant now, Instant cutoff, RateLimiter limiter) throws InterruptedException {
+        Map<String, Instant> marks = new HashMap<>();
+        String after = "";
+        List<String> ids;
+        do {
+            limiter.acquire(1);
+            ids = findOrphans.apply(after, PageRequest.of(0, chunkSize));
+            List<String> expired = new ArrayList<>();
+            for (String id : ids) {
+                Instant markedAt = previousMarks.getOrDefault(id, now);
+                if (!markedAt.isAfter(cutoff)) {
+                    expired.add(id);
+                } else if (marks.size() < maxMarks) {
+                    marks.put(id, markedAt);
+                }
+            }
+            if (!expired.isEmpty()) {
+                limiter.acquire(expired.size());
+                Integer deleted = writeTransaction.execute(status -> deleteOrphans.apply(expired));
+                deletedCounter.addAndGet(deleted != null ? deleted : 0);
+            }
+            if (!ids.isEmpty()) {
+                after = ids.get(ids.size() - 1);
+            }
+        } while (ids.size() == chunkSize);
+        return marks;
+    }
+
+    private void sweepFiles(Instant cutoff) {
+        Path root = imageStore.getRootDir();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        Path tmpDir = root.resolve(ImageStore.TMP_DIR);
+        RateLimiter limiter = new RateLimiter(operationsPerSecond);
+        List<Path> chunk = new ArrayList<>(chunkSize);
+        try {
+            // Pushes files through in chunks while walking, so memory does not grow with the store
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                    // Uploads in progress
+                    return dir.equals(tmpDir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    if (attributes.isRegularFile()) {
+                        chunk.add(file);
+                    }
+                    if (chunk.size() < chunkSize) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    return collectFiles(chunk, cutoff, limiter);
+                }
+
+                // Files deleted earlier in the walk, variants included, are expected to vanish
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            if (!chunk.isEmpty()) {
+                collectFiles(chunk, cutoff, limiter);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private FileVisitResult collectFiles(List<Path> chunk, Instant cutoff, RateLimiter limiter) throws IOException {
+        try {
+            Map<Path, String> hashed = new HashMap<>();
+            Map<Path, Set<String>> legacy = new HashMap<>();
+            List<Path> variants = new ArrayList<>();
+            for (Path file : chunk) {
+                String name = file.getFileName().toString();
+                if (ImageVariantService.originalOf(file).isPresent()) {
+                    variants.add(file);
+                } else if (CONTENT_HASH.matcher(name).matches()) {
+                    hashed.put(file, name);
+                } else {
+                    // Rows of images stored before content addressing name the file by path, relative or not
+                    legacy.put(file, Set.of(file.toString(), file.toAbsolutePath().normalize().toString()));
+                }
+            }
+
+            limiter.acquire(1);
+            Set<String> referencedHashes = hashed.isEmpty() ? Set.of()
+                    : new HashSet<>(imageNodeRepository.findReferencedContentHashes(hashed.values()));
+            Set<String> referencedPaths = legacy.isEmpty() ? Set.of()
+                    : new HashSet<>(imageNodeRepository.findReferencedImagePaths(
+                            legacy.values().stream().flatMap(Set::stream).toList()));
+
+            for (Map.Entry<Path, String> file : hashed.entrySet()) {
+                if (!referencedHashes.contains(file.getValue())) {
+                    deleteIfExpired(file.getKey(), true, cutoff, limiter);
+                }
+            }
+            for (Map.Entry<Path, Set<String>> file : legacy.entrySet()) {
+                if (file.getValue().stream().noneMatch(referencedPaths::contains)) {
+                    deleteIfExpired(file.getKey(), true, cutoff, limiter);
+                }
+            }
+            // Variants are only kept alive by their original
+            for (Path variant : variants) {
+                Optional<Path> original = ImageVariantService.originalOf(variant);
+                if (original.isPresent() && !Files.exists(original.get())) {
+                    deleteIfExpired(variant, false, cutoff, limiter);
+                }
+            }
+            return FileVisitResult.CONTINUE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return FileVisitResult.TERMINATE;
+        } finally {
+            chunk.clear();
+        }
+    }
+
+    // The modification time is read last, right before deleting: ImageStore bumps it when an upload
+    // deduplicates against the file, so a file about to be referenced again is kept
+    private void deleteIfExpired(Path file, boolean original, Instant cutoff, RateLimiter limiter)
+            throws IOException, InterruptedException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        if (attributes.lastModifiedTime().toInstant().isAfter(cutoff)) {
+            return;
+        }
+
+        limiter.acquire(1);
+        if (original) {
+            imageVariantService.deleteVariants(file);
+        }
+        if (Files.deleteIfExists(file)) {
+            filesDeleted.incrementAndGet();
+            reclaimedBytes.addAndGet(attributes.size());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        runTimer = Timer.builder("image.gc.run")
+                .description("Duration of one orphan collection run, rate limiting included")
+                .register(registry);
+        FunctionCounter.builder("image.gc.reclaimed", reclaimedBytes, AtomicLong::get)
+                .description("Bytes of unreferenced image files deleted")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("image.gc.files.deleted", filesDeleted, AtomicLong::get)
+                .description("Unreferenced image files and orphaned variants deleted")
+                .register(registry);
+        FunctionCounter.builder("image.gc.rows.deleted", textRowsDeleted, AtomicLong::get)
+                .description("Node rows deleted because no note child pointed to them")
+                .tag("table", "text_nodes")
+                .register(registry);
+        FunctionCounter.builder("image.gc.rows.deleted", imageRowsDeleted, AtomicLong::get)
+                .description("Node rows deleted because no note child pointed to them")
+                .tag("table", "image_nodes")
+                .register(registry);
+        Gauge.builder("image.gc.rows.marked", this, collector -> collector.markedTextRows.size() + collector.markedImageRows.size())
+                .description("Orphaned node rows waiting out the grace period")
+                .register(registry);
+    }
+}
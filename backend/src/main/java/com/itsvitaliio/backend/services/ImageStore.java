@@ -0,0 +1,199 @@
+package com.itsvitaliio.backend.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Content-addressed image files under image.upload.dir.
+// Files are named by their SHA-256 and sharded as ab/cd/abcd..., so identical uploads are stored once
+// and no directory grows past a few thousand entries.
+@Component
+public class ImageStore implements MeterBinder {
+
+    static final String TMP_DIR = "tmp";
+    static final String OCTET_STREAM = "application/octet-stream";
+
+    // Raster formats a browser only ever displays. SVG is left out on purpose: it can carry script,
+    // so it is downloaded like any other file.
+    private static final Set<String> INLINE_CONTENT_TYPES = Set.of(
+            "image/jpeg", "image/png", "image/gif", "image/webp", "image/bmp");
+
+    private final Path rootDir;
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong bytesDeduplicated = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    public ImageStore(@Value("${image.upload.dir}") String imageUploadDir) {
+        this.rootDir = Paths.get(imageUploadDir);
+    }
+
+    // Streams the upload to disk with a fixed-size buffer while hashing it, so memory use
+    // does not depend on the size of the image
+    public StoredImage store(MultipartFile imageFile) throws IOException {
+        try (InputStream in = imageFile.getInputStream()) {
+            return store(in);
+        }
+    }
+
+    // Reads input to its end but leaves closing it to the caller, so it can be an entry of a larger stream.
+    // The content type comes from the bytes; whatever the client declared is ignored.
+    public StoredImage store(InputStream input) throws IOException {
+        Path tmpDir = rootDir.resolve(TMP_DIR);
+        Files.createDirectories(tmpDir);
+        Path tmpFile = Files.createTempFile(tmpDir, "upload-", ".part");
+        try {
+            MessageDigest sha256 = sha256();
+            long size;
+            try (OutputStream out = Files.newOutputStream(tmpFile)) {
+                size = new DigestInputStream(input, sha256).transferTo(out);
+            }
+
+            String hash = HexFormat.of().formatHex(sha256.digest());
+            String contentType = detectContentType(tmpFile);
+            Path target = pathFor(hash);
+            if (!refresh(target)) {
+                Files.createDirectories(target.getParent());
+                try {
+                    // A concurrent upload of the same bytes just replaces an identical file
+                    Files.move(tmpFile, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmpFile, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+                bytesWritten.addAndGet(size);
+            } else {
+                bytesDeduplicated.addAndGet(size);
+            }
+            return new StoredImage(hash, target.toString(), contentType, size);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    public Path pathFor(String contentHash) {
+        return rootDir.resolve(contentHash.substring(0, 2))
+                .resolve(contentHash.substring(2, 4))
+                .resolve(contentHash);
+    }
+
+    public Path getRootDir() {
+        return rootDir;
+    }
+
+    // Whether path names a file inside the store. Clients can set an image row's path to anything
+    // (full sync, UPDATE_CONTENT), so no file is read, written or deleted for a row unless it passes this.
+    public boolean contains(Path path) {
+        Path root = rootDir.toAbsolutePath().normalize();
+        Path file = path.toAbsolutePath().normalize();
+        return file.startsWith(root) && !file.equals(root);
+    }
+
+    // One of INLINE_CONTENT_TYPES if the file starts with its signature, otherwise application/octet-stream
+    public static String detectContentType(Path file) throws IOException {
+        byte[] header = new byte[12];
+        int length;
+        try (InputStream in = Files.newInputStream(file)) {
+            length = in.readNBytes(header, 0, header.length);
+        }
+        return contentTypeOf(header, length);
+    }
+
+    public static boolean isInline(String contentType) {
+        return contentType != null && INLINE_CONTENT_TYPES.contains(contentType);
+    }
+
+    // Called by whoever streams a stored file back to a client
+    public void recordBytesRead(long bytes) {
+        bytesRead.addAndGet(bytes);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("image.bytes.written", bytesWritten, AtomicLong::get)
+                .description("Bytes of new image files written to the store")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("image.bytes.deduplicated", bytesDeduplicated, AtomicLong::get)
+                .description("Uploaded bytes that matched a file already in the store")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("image.bytes.read", bytesRead, AtomicLong::get)
+                .description("Image bytes served to clients, originals and variants")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    // Bumps the modification time of an existing file, which restarts the orphan collector's grace period
+    // while the row that will reference it again is being committed
+    private static boolean refresh(Path file) throws IOException {
+        try {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    static String contentTypeOf(byte[] header, int length) {
+        if (startsWith(header, length, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(header, length, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(header, length, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(header, length, 'R', 'I', 'F', 'F') && length >= 12
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return "image/webp";
+        }
+        if (startsWith(header, length, 'B', 'M')) {
+            return "image/bmp";
+        }
+        return OCTET_STREAM;
+    }
+
+    private static boolean startsWith(byte[] header, int length, int... signature) {
+        if (length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((header[i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public record StoredImage(String contentHash, String path, String contentType, long sizeBytes) {
+    }
+}
@@ -0,0 +1,264 @@
+package com.itsvitaliio.backend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Generates width-bounded copies of uploaded images on a small dedicated pool.
+// Variants live next to the original as <original>.w<width>.<jpg|png>; until one exists the original is served.
+// Only originals inside the image store get variants, since an image row's path is client-controlled.
+@Service
+public class ImageVariantService implements MeterBinder {
+
+    // Images above this many pixels are not decoded, to keep worker memory bounded
+    private static final long MAX_SOURCE_PIXELS = 50_000_000L;
+    private static final Pattern VARIANT_NAME = Pattern.compile("(.+)\\.w\\d+\\.(?:jpg|png)");
+
+    private final ImageStore imageStore;
+    private final int[] widths;
+    private final ThreadPoolExecutor executor;
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+    // Originals already handled, including those too small to need variants
+    private final Cache<Path, Boolean> processed = Caffeine.newBuilder().maximumSize(10_000).build();
+    private final AtomicLong rejected = new AtomicLong();
+    private Timer processingTimer;
+
+    public ImageVariantService(ImageStore imageStore,
+                               @Value("${image.variants.widths:160,480,960}") int[] widths,
+                               @Value("${image.variants.threads:2}") int threads,
+                               @Value("${image.variants.queue-capacity:100}") int queueCapacity) {
+        this.imageStore = imageStore;
+        this.widths = Arrays.stream(widths).sorted().toArray();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Queues generation once the surrounding transaction has committed the image row
+    public void generateAfterCommit(Path original) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    generate(original);
+                }
+            });
+        } else {
+            generate(original);
+        }
+    }
+
+    // Never blocks the caller: when the queue is full the request is dropped and retried on a later read.
+    // Returns true while variants may still appear, false once this original has been processed.
+    public boolean generate(Path original) {
+        if (!imageStore.contains(original) || processed.getIfPresent(original) != null) {
+            return false;
+        }
+        if (!inFlight.add(original)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    if (processingTimer != null) {
+                        processingTimer.record(() -> createVariants(original));
+                    } else {
+                        createVariants(original);
+                    }
+                    processed.put(original, Boolean.TRUE);
+                } finally {
+                    inFlight.remove(original);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(original);
+            rejected.incrementAndGet();
+        }
+        return true;
+    }
+
+    // Picks the smallest configured width that still covers the requested one
+    public Optional<Variant> find(Path original, int requestedWidth) {
+        if (!imageStore.contains(original)) {
+            return Optional.empty();
+        }
+        for (int width : widths) {
+            if (width >= requestedWidth) {
+                return existingVariant(original, width);
+            }
+        }
+        return Optional.empty();
+    }
+
+    // For when the original itself is being deleted
+    public void deleteVariants(Path original) throws IOException {
+        if (!imageStore.contains(original)) {
+            return;
+        }
+        processed.invalidate(original);
+        for (int width : widths) {
+            Files.deleteIfExists(variantPath(original, width, "jpg"));
+            Files.deleteIfExists(variantPath(original, width, "png"));
+        }
+    }
+
+    private Optional<Variant> existingVariant(Path original, int width) {
+        Path jpeg = variantPath(original, width, "jpg");
+        if (Files.exists(jpeg)) {
+            return Optional.of(new Variant(jpeg, width, "image/jpeg"));
+        }
+        Path png = variantPath(original, width, "png");
+        if (Files.exists(png)) {
+            return Optional.of(new Variant(png, width, "image/png"));
+        }
+        return Optional.empty();
+    }
+
+    private void createVariants(Path original) {
+        try {
+            if (!Files.exists(original) || pixelCount(original) > MAX_SOURCE_PIXELS) {
+                return;
+            }
+            BufferedImage source = ImageIO.read(original.toFile());
+            if (source == null) {
+                return; // Not a format ImageIO can decode
+            }
+            boolean alpha = source.getColorModel().hasAlpha();
+            String format = alpha ? "png" : "jpg";
+            for (int width : widths) {
+                if (width >= source.getWidth()) {
+                    break; // Never upscale; the original is already small enough
+                }
+                Path target = variantPath(original, width, format);
+                if (!Files.exists(target)) {
+                    writeAtomically(scale(source, width, alpha), format, target);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("ImageVariantService - Error generating variants for " + original + ": " + e.getMessage());
+        }
+    }
+
+    private static long pixelCount(Path original) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            if (input == null) {
+                return Long.MAX_VALUE;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return Long.MAX_VALUE;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input);
+                return (long) reader.getWidth(0) * reader.getHeight(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int width, boolean alpha) {
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+        BufferedImage scaled = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private static void writeAtomically(BufferedImage image, String format, Path target) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".part");
+        try {
+            ImageIO.write(image, format, tmp.toFile());
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    static Path variantPath(Path original, int width, String format) {
+        return original.resolveSibling(original.getFileName() + ".w" + width + "." + format);
+    }
+
+    // The original a variant file was generated from, or empty if the file is not a variant
+    static Optional<Path> originalOf(Path file) {
+        Matcher matcher = VARIANT_NAME.matcher(file.getFileName().toString());
+        return matcher.matches() ? Optional.of(file.resolveSibling(matcher.group(1))) : Optional.empty();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        processingTimer = Timer.builder("image.variants.processing")
+                .description("Time to generate all variants of one image")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        Gauge.builder("image.variants.queue.depth", executor, e -> e.getQueue().size())
+                .description("Images waiting for variant generation")
+                .register(registry);
+        Gauge.builder("image.variants.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Workers currently generating variants")
+                .register(registry);
+        FunctionCounter.builder("image.variants.rejected", rejected, AtomicLong::get)
+                .description("Generation requests dropped because the queue was full")
+                .register(registry);
+    }
+
+    public record Variant(Path path, int width, String contentType) {
+    }
+}
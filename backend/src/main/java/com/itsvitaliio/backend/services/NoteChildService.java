@@ -1,81 +1,179 @@
 package com.itsvitaliio.backend.services;
 
+import com.itsvitaliio.backend.dto.DeltaSyncRequest;
+import com.itsvitaliio.backend.dto.DeltaSyncResponse;
 import com.itsvitaliio.backend.dto.NoteChildDto;
+import com.itsvitaliio.backend.dto.NoteChildOperation;
+import com.itsvitaliio.backend.exceptions.InvalidEntryException;
+import com.itsvitaliio.backend.exceptions.NoteNotFoundException;
+import com.itsvitaliio.backend.exceptions.RevisionConflictException;
 import com.itsvitaliio.backend.models.ImageNode;
 import com.itsvitaliio.backend.models.NoteChild;
 import com.itsvitaliio.backend.models.TextNode;
 import com.itsvitaliio.backend.repositories.ImageNodeRepository;
 import com.itsvitaliio.backend.repositories.NoteChildRepository;
+import com.itsvitaliio.backend.repositories.NoteRepository;
 import com.itsvitaliio.backend.repositories.TextNodeRepository;
+import com.itsvitaliio.backend.utilities.SortKeys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
-public class NoteChildService {
+public class NoteChildService implements MeterBinder {
 
+    // Rows not yet backfilled by SortKeyRebalancer fall back to their old integer position
+    private static final Comparator<NoteChild> SIBLING_ORDER = Comparator
+            .comparing(NoteChild::getSortKey, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(NoteChild::getPosition, Comparator.nullsLast(Comparator.naturalOrder()));
 
-    @Value("${image.upload.dir}") // Inject the directory path from application.properties
-    private String imageUploadDir;
+    private final NoteRepository noteRepository;
     private final NoteChildRepository noteChildRepository;
     private final TextNodeRepository textNodeRepository;
     private final ImageNodeRepository imageNodeRepository;
+    private final NoteDocumentCache noteDocumentCache;
+    private final ImageStore imageStore;
+    private final ImageVariantService imageVariantService;
+    private final SearchIndexService searchIndexService;
+    private final SortKeyRebalancer sortKeyRebalancer;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private Timer getTimer;
+    private Timer syncTimer;
+    private Timer operationsTimer;
+    private Timer uploadTimer;
 
     @Autowired
-    public NoteChildService(NoteChildRepository noteChildRepository,
+    public NoteChildService(NoteRepository noteRepository,
+                            NoteChildRepository noteChildRepository,
                             TextNodeRepository textNodeRepository,
-                            ImageNodeRepository imageNodeRepository) {
+                            ImageNodeRepository imageNodeRepository,
+                            NoteDocumentCache noteDocumentCache,
+                            ImageStore imageStore,
+                            ImageVariantService imageVariantService,
+                            SearchIndexService searchIndexService,
+                            SortKeyRebalancer sortKeyRebalancer,
+                            PlatformTransactionManager transactionManager) {
+        this.noteRepository = noteRepository;
         this.noteChildRepository = noteChildRepository;
         this.textNodeRepository = textNodeRepository;
         this.imageNodeRepository = imageNodeRepository;
+        this.noteDocumentCache = noteDocumentCache;
+        this.imageStore = imageStore;
+        this.imageVariantService = imageVariantService;
+        this.searchIndexService = searchIndexService;
+        this.sortKeyRebalancer = sortKeyRebalancer;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
-    @Transactional(readOnly = true)
+    // Revision of the note's children, read without hydrating them
+    public Optional<Long> getRevision(String noteId) {
+        return noteRepository.findRevisionById(noteId);
+    }
+
+    // Not @Transactional: a cache hit should not borrow a connection
     public List<NoteChildDto> getAllNoteChildren(String noteId) {
+        return getNoteDocument(noteId, Long.MIN_VALUE).children();
+    }
+
+    // The children with the revision they were read at, at least minRevision; the revision is what
+    // the document may be tagged with, since the children are read after it
+    public NoteDocumentCache.NoteDocument getNoteDocument(String noteId, long minRevision) {
+        Timer.Sample sample = getTimer != null ? Timer.start() : null;
         try {
-            // Fetch note children from the repository
-            List<NoteChild> noteChildren = noteChildRepository.findByNoteId(noteId);
-            
-            // Sort the noteChildren by position before mapping them to DTOs
-            return noteChildren.stream()
-                    .sorted(Comparator.comparingInt(NoteChild::getPosition)) // Sorting by position in ascending order
-                    .map(noteChild -> {
-                        NoteChildDto dto = new NoteChildDto();
-                        dto.setId(noteChild.getId());
-                        dto.setNoteId(noteChild.getNoteId());
-                        dto.setType(noteChild.getType());
-                        dto.setPosition(noteChild.getPosition());
-
-                        // Set the correct child (text or image) in the DTO
-                        if ("text".equalsIgnoreCase(noteChild.getType())) {
-                            textNodeRepository.findById(noteChild.getChildId()).ifPresent(dto::setTextNode);
-                        } else if ("image".equalsIgnoreCase(noteChild.getType())) {
-                            imageNodeRepository.findById(noteChild.getChildId()).ifPresent(dto::setImageNode);
-                        }
-                        return dto;
-                    })
-                    .collect(Collectors.toList()); // Collect sorted results into a list
+            // Inside a write transaction the cache could capture uncommitted state, so read straight through
+            if (TransactionSynchronizationManager.isActualTransactionActive()
+                    && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                return loadNoteDocument(noteId);
+            }
+            return noteDocumentCache.get(noteId, minRevision, id -> readOnlyTransaction.execute(status -> loadNoteDocument(id)));
         } catch (Exception e) {
             System.err.println("getAllNoteChildren - Error fetching note children: " + e.getMessage());
             throw e; // Re-throw the exception if needed for further handling
+        } finally {
+            if (sample != null) {
+                sample.stop(getTimer);
+            }
         }
     }
 
+    // Revision first: a write committing in between can only make the children newer than their revision
+    private NoteDocumentCache.NoteDocument loadNoteDocument(String noteId) {
+        Long revision = noteRepository.findRevisionById(noteId).orElse(null);
+        return new NoteDocumentCache.NoteDocument(revision, loadNoteChildren(noteId));
+    }
+
+    private List<NoteChildDto> loadNoteChildren(String noteId) {
+        // Fetch note children from the repository
+        List<NoteChild> noteChildren = noteChildRepository.findByNoteId(noteId);
+        return hydrateNoteChildren(noteChildren);
+    }
+
+    // Builds the DTOs for the given children with one IN query per node type,
+    // so the number of statements does not grow with the size of the note
+    private List<NoteChildDto> hydrateNoteChildren(List<NoteChild> noteChildren) {
+        Map<String, List<String>> childIdsByType = noteChildren.stream()
+                .collect(Collectors.groupingBy(
+                        noteChild -> noteChild.getType().toLowerCase(),
+                        Collectors.mapping(NoteChild::getChildId, Collectors.toList())));
+
+        Map<String, TextNode> textNodes = textNodeRepository
+                .findAllById(childIdsByType.getOrDefault("text", List.of())).stream()
+                .collect(Collectors.toMap(TextNode::getId, Function.identity()));
+        Map<String, ImageNode> imageNodes = imageNodeRepository
+                .findAllById(childIdsByType.getOrDefault("image", List.of())).stream()
+                .collect(Collectors.toMap(ImageNode::getId, Function.identity()));
+
+        // Sort by key; clients keep seeing a dense 0-based position derived from that order
+        List<NoteChild> ordered = noteChildren.stream()
+                .sorted(SIBLING_ORDER)
+                .collect(Collectors.toList());
+        return IntStream.range(0, ordered.size())
+                .mapToObj(index -> {
+                    NoteChild noteChild = ordered.get(index);
+                    NoteChildDto dto = new NoteChildDto();
+                    dto.setId(noteChild.getId());
+                    dto.setNoteId(noteChild.getNoteId());
+                    dto.setType(noteChild.getType());
+                    dto.setPosition(index);
+
+                    // Set the correct child (text or image) in the DTO
+                    if ("text".equalsIgnoreCase(noteChild.getType())) {
+                        dto.setTextNode(textNodes.get(noteChild.getChildId()));
+                    } else if ("image".equalsIgnoreCase(noteChild.getType())) {
+                        dto.setImageNode(imageNodes.get(noteChild.getChildId()));
+                    }
+                    return dto;
+                })
+                .collect(Collectors.toList()); // Collect sorted results into a list
+    }
+
 
     @Transactional
     public List<NoteChildDto> syncNoteChildren(String noteId, List<NoteChildDto> incomingDtos) {
+        timeUntilCompletion(syncTimer);
+        noteDocumentCache.evict(noteId);
         List<NoteChildDto> updatedDtos = incomingDtos.stream()
             .peek(dto -> {
                 // Ensure each incoming DTO has the correct NoteId
@@ -90,25 +188,39 @@ public class NoteChildService {
             }).collect(Collectors.toList());
 
         try {
+            // Full syncs move the note forward too, so delta clients notice they are stale.
+            // Bumping first also takes the note's row lock before any sort keys are read.
+            noteRepository.incrementRevision(noteId);
+
             List<NoteChild> existingNoteChildren = noteChildRepository.findByNoteId(noteId);
             Map<String, NoteChild> existingMap = existingNoteChildren.stream()
                     .collect(Collectors.toMap(NoteChild::getId, child -> child));
 
+            // Keep the keys of children that are already in order and only re-key the ones that moved
+            List<NoteChildDto> orderedDtos = updatedDtos.stream()
+                    .sorted(Comparator.comparing(NoteChildDto::getPosition, Comparator.nullsLast(Comparator.naturalOrder())))
+                    .collect(Collectors.toList());
+            List<String> sortKeys = SortKeys.reconcile(orderedDtos.stream()
+                    .map(dto -> existingMap.containsKey(dto.getId()) ? existingMap.get(dto.getId()).getSortKey() : null)
+                    .collect(Collectors.toList()));
+
             // Iterate through the incoming DTOs
-            for (NoteChildDto dto : updatedDtos) {
+            for (int i = 0; i < orderedDtos.size(); i++) {
+                NoteChildDto dto = orderedDtos.get(i);
                 NoteChild existingChild = existingMap.get(dto.getId());
 
                 if (existingChild == null) {
                     System.out.println("Creating a new note child: " + dto.toString());
                     // Create new note child if not found in existing ones
-                    handleCreateOperation(dto);
+                    handleCreateOperation(dto, sortKeys.get(i));
                 } else {
-                    // Update existing note child and ensure position updates are handled
+                    // Update existing note child; its row is only written if its key or content changed
                     System.out.println("Updating existing note child: " + dto.getId());
-                    handleUpdateOperation(dto, existingChild);
+                    handleUpdateOperation(dto, existingChild, sortKeys.get(i));
                     existingMap.remove(dto.getId());
                 }
             }
+            checkSortKeyLength(noteId, sortKeys);
 
             // Handle deletion of any remaining items that were not included in the update
             existingMap.values().forEach(this::handleDeleteOperation);
@@ -121,13 +233,148 @@ public class NoteChildService {
         return updatedDtos;
     }
 
-    private void handleUpdateOperation(NoteChildDto dto, NoteChild existingChild) {
-        try {
-            // Always update the position
-            existingChild.setPosition(dto.getPosition());
+    // Applies an ordered list of operations against the revision the client last saw.
+    // Only the touched rows are written, so the cost scales with the edit rather than the note.
+    @Transactional
+    public DeltaSyncResponse applyOperations(String noteId, DeltaSyncRequest request) {
+        timeUntilCompletion(operationsTimer);
+        noteDocumentCache.evict(noteId);
+        if (request.getBaseRevision() == null) {
+            throw new InvalidEntryException("baseRevision is required");
+        }
+        if (noteRepository.advanceRevision(noteId, request.getBaseRevision()) == 0) {
+            long currentRevision = noteRepository.findRevisionById(noteId)
+                    .orElseThrow(() -> new NoteNotFoundException("Note not found"));
+            throw new RevisionConflictException("Note has moved on to revision " + currentRevision, currentRevision);
+        }
+
+        Map<String, String> assignedIds = new HashMap<>();
+        List<NoteChildOperation> operations = request.getOperations() != null ? request.getOperations() : List.of();
+        for (NoteChildOperation operation : operations) {
+            if (operation.getOp() == null) {
+                throw new InvalidEntryException("Operation kind is required");
+            }
+            switch (operation.getOp()) {
+                case INSERT -> applyInsert(noteId, operation, assignedIds);
+                case UPDATE_CONTENT -> applyContentUpdate(findChild(noteId, operation, assignedIds), operation);
+                case MOVE -> applyMove(noteId, findChild(noteId, operation, assignedIds), operation.getPosition());
+                // Siblings keep their keys, so removing a child leaves the rest untouched
+                case DELETE -> handleDeleteOperation(findChild(noteId, operation, assignedIds));
+            }
+        }
+
+        return new DeltaSyncResponse(request.getBaseRevision() + 1, assignedIds);
+    }
+
+    private NoteChild findChild(String noteId, NoteChildOperation operation, Map<String, String> assignedIds) {
+        // Later operations in the same batch may refer to a child by the temporary ID of its insert
+        String id = assignedIds.getOrDefault(operation.getId(), operation.getId());
+        if (id == null) {
+            throw new InvalidEntryException("Operation " + operation.getOp() + " is missing the child ID");
+        }
+        return noteChildRepository.findByIdAndNoteId(id, noteId)
+                .orElseThrow(() -> new InvalidEntryException("Note child not found: " + id));
+    }
 
-            // Save the updated NoteChild to persist the position change
-            noteChildRepository.save(existingChild);
+    private void applyInsert(String noteId, NoteChildOperation operation, Map<String, String> assignedIds) {
+        if (!"text".equalsIgnoreCase(operation.getType()) && !"image".equalsIgnoreCase(operation.getType())) {
+            throw new InvalidEntryException("Unsupported note child type: " + operation.getType());
+        }
+        List<NoteChild> siblings = noteChildRepository.findByNoteIdOrderBySortKeyAsc(noteId);
+        int position = clamp(operation.getPosition(), siblings.size());
+
+        NoteChildDto dto = new NoteChildDto();
+        dto.setNoteId(noteId);
+        dto.setType(operation.getType());
+        dto.setPosition(position);
+        if ("text".equalsIgnoreCase(operation.getType())) {
+            dto.setTextNode(new TextNode(null, operation.getContent()));
+        } else {
+            dto.setImageNode(new ImageNode(null, operation.getImagePath()));
+        }
+        handleCreateOperation(dto, sortKeyAt(noteId, siblings, position));
+
+        if (operation.getId() != null) {
+            assignedIds.put(operation.getId(), dto.getId());
+        }
+    }
+
+    private void applyContentUpdate(NoteChild noteChild, NoteChildOperation operation) {
+        if ("text".equalsIgnoreCase(noteChild.getType())) {
+            textNodeRepository.findById(noteChild.getChildId()).ifPresent(textNode -> {
+                textNode.setContent(operation.getContent() != null ? operation.getContent() : "");
+                textNodeRepository.save(textNode);
+                searchIndexService.indexBlock(noteChild.getNoteId(), noteChild.getId(), textNode.getContent());
+            });
+        } else if ("image".equalsIgnoreCase(noteChild.getType()) && operation.getImagePath() != null) {
+            imageNodeRepository.findById(noteChild.getChildId()).ifPresent(imageNode -> {
+                repointImage(imageNode, operation.getImagePath());
+                imageNodeRepository.save(imageNode);
+            });
+        }
+    }
+
+    private void applyMove(String noteId, NoteChild noteChild, Integer targetPosition) {
+        List<NoteChild> siblings = noteChildRepository.findByNoteIdOrderBySortKeyAsc(noteId);
+        int from = siblings.indexOf(noteChild);
+        siblings.remove(noteChild);
+        int to = clamp(targetPosition, siblings.size());
+        if (from == to) {
+            return;
+        }
+        // Only the moved row gets a new key
+        noteChild.setSortKey(sortKeyAt(noteId, siblings, to));
+        noteChildRepository.save(noteChild);
+    }
+
+    // Key for a child placed at index among siblings (ordered, without the child itself)
+    private String sortKeyAt(String noteId, List<NoteChild> siblings, int index) {
+        String before = index > 0 ? siblings.get(index - 1).getSortKey() : null;
+        String after = index < siblings.size() ? siblings.get(index).getSortKey() : null;
+        boolean unkeyed = (index > 0 && before == null) || (index < siblings.size() && after == null);
+        if (unkeyed || (before != null && after != null && before.compareTo(after) >= 0)) {
+            // Rows not backfilled yet, or keys that are not strictly ordered; fix the note first
+            sortKeyRebalancer.rebalance(siblings);
+            siblings.sort(SIBLING_ORDER);
+            return sortKeyAt(noteId, siblings, index);
+        }
+        String key = SortKeys.between(before, after);
+        if (key.length() > SortKeys.MAX_LENGTH) {
+            sortKeyRebalancer.rebalance(siblings);
+            return sortKeyAt(noteId, siblings, index);
+        }
+        checkSortKeyLength(noteId, List.of(key));
+        return key;
+    }
+
+    private void checkSortKeyLength(String noteId, List<String> sortKeys) {
+        if (sortKeys.stream().anyMatch(key -> key.length() > SortKeys.REBALANCE_LENGTH)) {
+            sortKeyRebalancer.requestRebalance(noteId);
+        }
+    }
+
+    // A client-supplied path is not content-addressed, so the stored hash and metadata no longer apply
+    private void repointImage(ImageNode imageNode, String imagePath) {
+        imageNode.setImagePath(imagePath);
+        imageNode.setContentHash(null);
+        imageNode.setContentType(null);
+        imageNode.setSizeBytes(null);
+    }
+
+    private int clamp(Integer position, int max) {
+        if (position == null) {
+            return Math.max(max, 0);
+        }
+        return Math.max(0, Math.min(position, max));
+    }
+
+    private void handleUpdateOperation(NoteChildDto dto, NoteChild existingChild, String sortKey) {
+        try {
+            // Persist the order change only when the child actually moved
+            if (!sortKey.equals(existingChild.getSortKey())) {
+                existingChild.setSortKey(sortKey);
+                noteChildRepository.save(existingChild);
+            }
 
             // Update text nodes if the type is text
             if ("text".equalsIgnoreCase(dto.getType())) {
@@ -135,6 +382,7 @@ public class NoteChildService {
                     if (!textNode.getContent().equals(dto.getTextNode().getContent())) {
                         textNode.setContent(dto.getTextNode().getContent());
                         textNodeRepository.save(textNode);
+                        searchIndexService.indexBlock(existingChild.getNoteId(), existingChild.getId(), textNode.getContent());
                     }
                 });
             } 
@@ -142,7 +390,7 @@ public class NoteChildService {
             else if ("image".equalsIgnoreCase(dto.getType())) {
                 imageNodeRepository.findById(existingChild.getChildId()).ifPresent(imageNode -> {
                     if (!imageNode.getImagePath().equals(dto.getImageNode().getImagePath())) {
-                        imageNode.setImagePath(dto.getImageNode().getImagePath());
+                        repointImage(imageNode, dto.getImageNode().getImagePath());
                         imageNodeRepository.save(imageNode);
                     }
                 });
@@ -155,13 +403,14 @@ public class NoteChildService {
 
 
     @Transactional
-    private void handleCreateOperation(NoteChildDto dto) {
+    private void handleCreateOperation(NoteChildDto dto, String sortKey) {
         try {
             // Generate IDs if they are missing
             String generatedId = dto.getId() != null ? dto.getId() : UUID.randomUUID().toString();
             dto.setId(generatedId);
 
             String childId = null;
+            String textContent = null;
             String type = dto.getType(); // Should be "text" or "image"
 
             // Handle TextNode creation
@@ -174,7 +423,8 @@ public class NoteChildService {
                         textNodeId,
                         dto.getTextNode().getContent() != null ? dto.getTextNode().getContent() : ""
                 );
-                textNodeRepository.save(textNode);
+                textNodeRepository.insert(textNode);
+                textContent = textNode.getContent();
 
                 // Set the childId to the generated textNodeId for the NoteChild
                 childId = textNodeId;
@@ -193,7 +443,7 @@ public class NoteChildService {
                         imageNodeId,
                         dto.getImageNode().getImagePath() != null ? dto.getImageNode().getImagePath() : ""
                 );
-                imageNodeRepository.save(imageNode);
+                imageNodeRepository.insert(imageNode);
 
                 // Set the childId to the generated imageNodeId for the NoteChild
                 childId = imageNodeId;
@@ -210,9 +460,13 @@ public class NoteChildService {
                         dto.getNoteId(),
                         childId, // Set the childId to the generated TextNode or ImageNode ID
                         type, // Set the type correctly (text or image)
-                        dto.getPosition()
+                        null, // Ordered by sortKey alone; position is only kept for rows from before sort keys
+                        sortKey
                 );
-                noteChildRepository.save(noteChild);
+                noteChildRepository.insert(noteChild);
+                if (textContent != null) {
+                    searchIndexService.indexBlock(noteChild.getNoteId(), noteChild.getId(), textContent);
+                }
 
                 // Update the DTO with the correct NoteChild ID
                 dto.setId(noteChild.getId());
@@ -231,6 +485,7 @@ public class NoteChildService {
             noteChildRepository.delete(existingChild);
             if ("text".equalsIgnoreCase(existingChild.getType())) {
                 textNodeRepository.deleteById(existingChild.getChildId());
+                searchIndexService.removeBlock(existingChild.getNoteId(), existingChild.getId());
             } else if ("image".equalsIgnoreCase(existingChild.getType())) {
                 imageNodeRepository.deleteById(existingChild.getChildId());
             }
@@ -242,37 +497,36 @@ public class NoteChildService {
 
     @Transactional
     public List<NoteChildDto> uploadImage(String noteId, String noteChildId, MultipartFile imageFile) {
+        timeUntilCompletion(uploadTimer);
+        noteDocumentCache.evict(noteId);
+        // Scoped to the note, so an upload cannot rewrite a child of a note whose cache entry was not evicted
+        NoteChild noteChild = noteChildRepository.findByIdAndNoteId(noteChildId, noteId)
+                .orElseThrow(() -> new NoteNotFoundException("Note child " + noteChildId + " not found in note " + noteId));
         try {
-            // Ensure the directory exists, create it if it doesn't
-            Path directoryPath = Paths.get(imageUploadDir);
-            if (!Files.exists(directoryPath)) {
-                Files.createDirectories(directoryPath);
-            }
-
-            // Generate a unique filename or use the file's original name
-            String imageFileName = UUID.randomUUID().toString() + "_" + imageFile.getOriginalFilename();
-
-            // Save the image to the filesystem
-            Path imagePath = directoryPath.resolve(imageFileName);
-            Files.write(imagePath, imageFile.getBytes());
-
-            // Find the existing NoteChild by ID
-            NoteChild noteChild = noteChildRepository.findById(noteChildId)
-                    .orElseThrow(() -> new RuntimeException("NoteChild not found"));
+            // Stream the image into the content-addressed store; identical images share one file
+            ImageStore.StoredImage storedImage = imageStore.store(imageFile);
 
-            // If the NoteChild is a text node, remove the associated TextNode
+            // Remove the node the NoteChild pointed at before; the file itself is shared by hash
             if ("text".equalsIgnoreCase(noteChild.getType())) {
                 textNodeRepository.deleteById(noteChild.getChildId());
+                searchIndexService.removeBlock(noteId, noteChild.getId());
+            } else if ("image".equalsIgnoreCase(noteChild.getType())) {
+                imageNodeRepository.deleteById(noteChild.getChildId());
             }
 
             // Create a new ImageNode and save it in the database
-            ImageNode imageNode = new ImageNode(UUID.randomUUID().toString(), imagePath.toString());
-            imageNodeRepository.save(imageNode);
+            ImageNode imageNode = new ImageNode(UUID.randomUUID().toString(), storedImage.path(),
+                    storedImage.contentHash(), storedImage.contentType(), storedImage.sizeBytes());
+            imageNodeRepository.insert(imageNode);
 
             // Update the NoteChild to point to the new ImageNode
             noteChild.setType("image");
             noteChild.setChildId(imageNode.getId());
             noteChildRepository.save(noteChild);
+            noteRepository.incrementRevision(noteId);
+
+            // Thumbnails are produced in the background; the original is served until they exist
+            imageVariantService.generateAfterCommit(Paths.get(storedImage.path()));
 
             // Return the updated list of note children
             return getAllNoteChildren(noteId);
@@ -285,4 +539,34 @@ public class NoteChildService {
         }
     }
 
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        getTimer = serviceTimer("note.children.get", "Time to return a note's children, cache hits included", registry);
+        syncTimer = serviceTimer("note.children.sync", "Time to apply a full sync, commit included", registry);
+        operationsTimer = serviceTimer("note.children.operations", "Time to apply a delta sync, commit included", registry);
+        uploadTimer = serviceTimer("note.children.upload", "Time to store an uploaded image, commit included", registry);
+    }
+
+    private static Timer serviceTimer(String name, String description, MeterRegistry registry) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    // Stops the timer once the surrounding transaction has committed or rolled back,
+    // so flush and commit time are part of the measurement
+    private void timeUntilCompletion(Timer timer) {
+        if (timer == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Timer.Sample sample = Timer.start();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                sample.stop(timer);
+            }
+        });
+    }
 }
@@ -0,0 +1,112 @@
+package com.itsvitaliio.backend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.itsvitaliio.backend.dto.NoteChildDto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+// Read-through cache of hydrated note children, keyed by note ID and tagged with the revision they were read at.
+// Bounded by an estimate of retained heap bytes and evicted with Caffeine's W-TinyLFU policy.
+@Component
+public class NoteDocumentCache implements MeterBinder {
+
+    private static final String CACHE_NAME = "noteDocuments";
+
+    // Rough per-object overheads used by the weigher; only relative accuracy matters
+    private static final int LIST_OVERHEAD_BYTES = 64;
+    private static final int CHILD_OVERHEAD_BYTES = 160;
+    private static final int NODE_OVERHEAD_BYTES = 48;
+
+    private final Cache<String, NoteDocument> cache;
+
+    public NoteDocumentCache(@Value("${notes.cache.max-bytes:67108864}") long maxBytes) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String noteId, NoteDocument document) -> weigh(noteId, document.children()))
+                .recordStats()
+                .build();
+    }
+
+    // A reader that loads while a write commits can cache the old document after the write's eviction.
+    // Its revision gives it away: an entry older than minRevision is reloaded and replaced.
+    public NoteDocument get(String noteId, long minRevision, Function<String, NoteDocument> loader) {
+        NoteDocument document = cache.get(noteId, loader);
+        if (document.isAtLeast(minRevision)) {
+            return document;
+        }
+        NoteDocument reloaded = loader.apply(noteId);
+        cache.asMap().merge(noteId, reloaded, (cached, loaded) -> loaded.isAtLeast(cached.revision()) ? loaded : cached);
+        return reloaded;
+    }
+
+    // Drops the entry now and again once the surrounding transaction completes,
+    // so a reader racing the write cannot re-populate the cache with the old document
+    public void evict(String noteId) {
+        evictAll(List.of(noteId));
+    }
+
+    public void evictAll(Collection<String> noteIds) {
+        cache.invalidateAll(noteIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidateAll(noteIds);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+        Gauge.builder("cache.weighted.size", cache,
+                        c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L))
+                .tag("cache", CACHE_NAME)
+                .baseUnit("bytes")
+                .description("Estimated heap bytes held by the cache")
+                .register(registry);
+    }
+
+    private static int weigh(String noteId, List<NoteChildDto> children) {
+        long bytes = LIST_OVERHEAD_BYTES + sizeOf(noteId);
+        for (NoteChildDto child : children) {
+            bytes += CHILD_OVERHEAD_BYTES + sizeOf(child.getId()) + sizeOf(child.getNoteId()) + sizeOf(child.getType());
+            if (child.getTextNode() != null) {
+                bytes += NODE_OVERHEAD_BYTES + sizeOf(child.getTextNode().getId()) + sizeOf(child.getTextNode().getContent());
+            }
+            if (child.getImageNode() != null) {
+                bytes += NODE_OVERHEAD_BYTES + sizeOf(child.getImageNode().getId()) + sizeOf(child.getImageNode().getImagePath());
+            }
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    // revision is null when the note did not exist at the time
+    public record NoteDocument(Long revision, List<NoteChildDto> children) {
+
+        public NoteDocument {
+            children = List.copyOf(children);
+        }
+
+        boolean isAtLeast(Long minRevision) {
+            return minRevision == null || (revision != null && revision >= minRevision);
+        }
+    }
+
+    private static long sizeOf(String value) {
+        // Header plus backing array; assumes UTF-16 to stay on the safe side
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+}
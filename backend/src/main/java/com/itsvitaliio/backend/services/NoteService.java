@@ -15,8 +15,11 @@ import com.itsvitaliio.backend.repositories.NoteRepository;
 import com.itsvitaliio.backend.repositories.TextNodeRepository;
 import com.itsvitaliio.backend.repositories.UserNoteRepository;
 import com.itsvitaliio.backend.repositories.UserRepository;
+import com.itsvitaliio.backend.utilities.NoteCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -29,6 +32,9 @@ import java.util.stream.Collectors;
 @Service
 public class NoteService {
 
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int PREVIEW_LENGTH = 120;
+
     @Value("${image.upload.dir}")
     private String imageUploadDir;
 
@@ -39,9 +45,11 @@ public class NoteService {
     private final NoteChildRepository noteChildRepository;
     private final TextNodeRepository textNodeRepository;
     private final ImageNodeRepository imageNodeRepository;
+    private final NoteDocumentCache noteDocumentCache;
+    private final SearchIndexService searchIndexService;
 
     @Autowired
-    public NoteService(NoteRepository noteRepository, UserRepository userRepository, UserNoteRepository userNoteRepository, UserNoteService userNoteService, NoteChildRepository noteChildRepository, TextNodeRepository textNodeRepository, ImageNodeRepository imageNodeRepository) {
+    public NoteService(NoteRepository noteRepository, UserRepository userRepository, UserNoteRepository userNoteRepository, UserNoteService userNoteService, NoteChildRepository noteChildRepository, TextNodeRepository textNodeRepository, ImageNodeRepository imageNodeRepository, NoteDocumentCache noteDocumentCache, SearchIndexService searchIndexService) {
         this.noteRepository = noteRepository;
         this.userRepository = userRepository;
         this.userNoteRepository = userNoteRepository;
@@ -49,6 +57,8 @@ public class NoteService {
         this.noteChildRepository = noteChildRepository;
         this.textNodeRepository = textNodeRepository;
         this.imageNodeRepository = imageNodeRepository;
+        this.noteDocumentCache = noteDocumentCache;
+        this.searchIndexService = searchIndexService;
     }
 
     @Transactional
@@ -69,15 +79,49 @@ public class NoteService {
         userNote.setUser(user);
         userNote.setNote(note);
         userNoteRepository.save(userNote);
+        userRepository.incrementNotesRevision(userId);
 
         return note;
     }
 
-    public List<Note> getAllNotesForUser(String userId) {
-        List<UserNote> userNotes = userNoteService.findByUserId(userId);
-        return userNotes.stream()
-                .map(UserNote::getNote)
-                .collect(Collectors.toList());
+    // Revision of the user's notes list, read without loading it
+    public Optional<Long> getNotesRevision(String userId) {
+        return userRepository.findNotesRevisionById(userId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<NoteListItemDto> getAllNotesForUser(String userId) {
+        return userNoteRepository.findNoteList(userId, Pageable.unpaged());
+    }
+
+    // Keyset pagination over (lastInteractedWith desc, id desc); cost is independent of how deep the page is
+    @Transactional(readOnly = true)
+    public NotePage getNotesPage(String userId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // Fetch one extra row to learn whether another page follows
+        Pageable pageable = PageRequest.of(0, pageSize + 1);
+        List<NoteListItemDto> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = userNoteRepository.findNoteList(userId, pageable);
+        } else {
+            NoteCursor after = NoteCursor.decode(cursor);
+            rows = userNoteRepository.findNoteListAfter(userId, after.lastInteractedWith(), after.noteId(), pageable);
+        }
+
+        if (rows.size() <= pageSize) {
+            return new NotePage(rows, null);
+        }
+        List<NoteListItemDto> page = rows.subList(0, pageSize);
+        NoteListItemDto last = page.get(pageSize - 1);
+        return new NotePage(page, new NoteCursor(last.getLastInteractedWith(), last.getId()).encode());
+    }
+
+    @Transactional(readOnly = true)
+    public List<NoteSummary> getNoteSummaries(String userId) {
+        return noteRepository.findSummariesByUserId(userId, PREVIEW_LENGTH);
+    }
+
+    public record NotePage(List<NoteListItemDto> notes, String nextCursor) {
     }
 
     @Transactional
@@ -92,6 +136,8 @@ public class NoteService {
         note.setTitle(request.getTitle());
         note.setLastInteractedWith(LocalDateTime.now());
         noteRepository.save(note);
+        // The title is not part of the children, so only the list moves on; delta sync clients are not disturbed
+        userRepository.incrementNotesRevision(userId);
     }
 
 
@@ -103,22 +149,20 @@ public class NoteService {
             throw new NoteNotFoundException("User and note do not match");
         }
 
-        // Delete all NoteChild entries related to the note
-        List<NoteChild> noteChildren = noteChildRepository.findByNoteId(noteId);
-        for (NoteChild noteChild : noteChildren) {
-            String childId = noteChild.getChildId();
-            if (noteChild.getType().equals("text")) {
-                textNodeRepository.deleteById(childId);
-            } else if (noteChild.getType().equals("image")) {
-                imageNodeRepository.deleteById(childId);
-            }
-        }
-        noteChildRepository.deleteAll(noteChildren);
+        noteDocumentCache.evict(noteId);
+        searchIndexService.removeNote(userId, noteId);
+
+        // Delete the text and image nodes, then the NoteChild entries, each with a single statement
+        List<String> noteIds = List.of(noteId);
+        textNodeRepository.deleteByNoteIdIn(noteIds);
+        imageNodeRepository.deleteByNoteIdIn(noteIds);
+        noteChildRepository.deleteByNoteIdIn(noteIds);
 
         // Delete the UserNote entry
-        userNoteRepository.delete(userNoteOptional.get());
+        userNoteRepository.deleteByNoteId(noteId);
 
         // Delete the note itself
-        noteRepository.deleteById(noteId);
+        noteRepository.deleteByIdIn(noteIds);
+        userRepository.incrementNotesRevision(userId);
     }
 }
@@ -0,0 +1,467 @@
+package com.itsvitaliio.backend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.itsvitaliio.backend.dto.SearchResultDto;
+import com.itsvitaliio.backend.repositories.NoteChildRepository;
+import com.itsvitaliio.backend.repositories.UserNoteRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Per-user inverted index over text blocks, kept in memory and snapshotted to disk.
+// Updated incrementally by the note child write paths once their transaction commits; a user's partition is
+// loaded from its snapshot on first use and only rebuilt from the database when no snapshot exists.
+// Snapshots are only trusted after a clean shutdown: updates applied after the last flush die with the process,
+// so after a crash every snapshot is discarded and partitions are rebuilt as they are used.
+@Service
+public class SearchIndexService implements MeterBinder {
+
+    private static final int SNAPSHOT_VERSION = 1;
+    static final String CLEAN_SHUTDOWN_MARKER = "clean-shutdown";
+    private static final int MAX_HIGHLIGHTS_PER_BLOCK = 20;
+    private static final Pattern SAFE_FILE_NAME = Pattern.compile("[A-Za-z0-9_-]+");
+
+    private final Path indexDir;
+    private final NoteChildRepository noteChildRepository;
+    private final UserNoteRepository userNoteRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final LoadingCache<String, UserIndex> partitions;
+    private final Cache<String, String> noteOwners;
+    private Timer searchTimer;
+
+    public SearchIndexService(@Value("${search.index.dir:search-index}") String indexDir,
+                              @Value("${search.index.max-users:1000}") long maxUsers,
+                              NoteChildRepository noteChildRepository,
+                              UserNoteRepository userNoteRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.indexDir = Paths.get(indexDir);
+        this.noteChildRepository = noteChildRepository;
+        this.userNoteRepository = userNoteRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.noteOwners = Caffeine.newBuilder().maximumSize(100_000).build();
+        // Idle partitions are dropped from memory; the listener runs inside the eviction, so a concurrent
+        // reload always sees the snapshot it wrote
+        this.partitions = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(Duration.ofMinutes(30))
+                .evictionListener((String userId, UserIndex index, RemovalCause cause) -> {
+                    if (index != null && index.isDirty()) {
+                        persist(userId, index);
+                    }
+                })
+                .build(this::load);
+    }
+
+    // Write hooks. They are called inside the writing transaction and applied after it commits.
+
+    public void indexBlock(String noteId, String blockId, String content) {
+        String userId = ownerOf(noteId);
+        if (userId != null) {
+            afterCommit(userId, () -> partitions.get(userId).put(blockId, noteId, content != null ? content : ""));
+        }
+    }
+
+    public void removeBlock(String noteId, String blockId) {
+        String userId = ownerOf(noteId);
+        if (userId != null) {
+            afterCommit(userId, () -> partitions.get(userId).remove(blockId));
+        }
+    }
+
+    public void removeNote(String userId, String noteId) {
+        afterCommit(userId, () -> {
+            partitions.get(userId).removeNote(noteId);
+            noteOwners.invalidate(noteId);
+        });
+    }
+
+    public void dropUser(String userId) {
+        afterCommit(userId, () -> discard(userId));
+    }
+
+    // Blocks must contain every query term; the last term also matches as a prefix so results follow typing
+    public List<SearchResultDto> search(String userId, String query, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(terms(query)));
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        UserIndex index = partitions.get(userId);
+        return searchTimer != null
+                ? searchTimer.record(() -> index.search(terms, limit))
+                : index.search(terms, limit);
+    }
+
+    @Scheduled(fixedDelayString = "${search.index.flush-interval-ms:5000}")
+    public void flushDirty() {
+        partitions.asMap().forEach((userId, index) -> {
+            if (index.isDirty()) {
+                persist(userId, index);
+            }
+        });
+    }
+
+    // The marker is consumed here, so it only ever vouches for the snapshots of a single run
+    @PostConstruct
+    void start() {
+        Path marker = indexDir.resolve(CLEAN_SHUTDOWN_MARKER);
+        try {
+            if (!Files.deleteIfExists(marker)) {
+                discardSnapshots();
+            }
+        } catch (IOException e) {
+            System.err.println("SearchIndexService - Error checking index snapshots, rebuilding: " + e.getMessage());
+            discardSnapshots();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        boolean clean = true;
+        for (Map.Entry<String, UserIndex> partition : partitions.asMap().entrySet()) {
+            if (partition.getValue().isDirty()) {
+                clean &= persist(partition.getKey(), partition.getValue());
+            }
+        }
+        if (clean) {
+            try {
+                Files.createDirectories(indexDir);
+                Files.createFile(indexDir.resolve(CLEAN_SHUTDOWN_MARKER));
+            } catch (IOException e) {
+                System.err.println("SearchIndexService - Error marking index snapshots as current: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        searchTimer = Timer.builder("search.query")
+                .description("Time to evaluate a search against a loaded partition")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        Gauge.builder("search.partitions.loaded", partitions, LoadingCache::estimatedSize)
+                .description("User index partitions held in memory")
+                .register(registry);
+    }
+
+    private String ownerOf(String noteId) {
+        return noteOwners.get(noteId, id -> {
+            List<String> owners = userNoteRepository.findUserIdsByNoteId(id);
+            return owners.isEmpty() ? null : owners.get(0);
+        });
+    }
+
+    private void afterCommit(String userId, Runnable action) {
+        Runnable guarded = () -> {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                // The index is derived data; a failed update must never fail the write that caused it.
+                // The partition has missed a change, so it is rebuilt on next use.
+                System.err.println("SearchIndexService - Error updating index of " + userId + ", dropping it: " + e.getMessage());
+                discard(userId);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    guarded.run();
+                }
+            });
+        } else {
+            guarded.run();
+        }
+    }
+
+    private void discard(String userId) {
+        partitions.invalidate(userId);
+        try {
+            Files.deleteIfExists(snapshotPath(userId));
+        } catch (IOException e) {
+            System.err.println("SearchIndexService - Error deleting index of " + userId + ": " + e.getMessage());
+        }
+    }
+
+    private void discardSnapshots() {
+        if (!Files.isDirectory(indexDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(indexDir)) {
+            files.filter(file -> file.getFileName().toString().endsWith(".idx")).forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    System.err.println("SearchIndexService - Error deleting stale snapshot " + file + ": " + e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("SearchIndexService - Error listing index snapshots: " + e.getMessage());
+        }
+    }
+
+    private UserIndex load(String userId) {
+        Path snapshot = snapshotPath(userId);
+        if (Files.exists(snapshot)) {
+            try {
+                return UserIndex.readFrom(snapshot);
+            } catch (IOException e) {
+                System.err.println("SearchIndexService - Unreadable snapshot for " + userId + ", rebuilding: " + e.getMessage());
+            }
+        }
+
+        UserIndex index = new UserIndex();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            for (Object[] row : noteChildRepository.findTextBlocksByUserId(userId)) {
+                index.put((String) row[0], (String) row[1], (String) row[2]);
+            }
+        });
+        return index;
+    }
+
+    private boolean persist(String userId, UserIndex index) {
+        if (!SAFE_FILE_NAME.matcher(userId).matches()) {
+            return true;
+        }
+        try {
+            Files.createDirectories(indexDir);
+            Path target = snapshotPath(userId);
+            Path tmp = target.resolveSibling(target.getFileName() + ".part");
+            index.writeTo(tmp);
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("SearchIndexService - Error writing index of " + userId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private Path snapshotPath(String userId) {
+        return indexDir.resolve(userId + ".idx");
+    }
+
+    // Lower-cased runs of letters and digits
+    static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        forEachToken(text, (term, start, end) -> terms.add(term));
+        return terms;
+    }
+
+    static void forEachToken(String text, TokenConsumer consumer) {
+        if (text == null) {
+            return;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                consumer.accept(text.substring(start, i).toLowerCase(Locale.ROOT), start, i);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface TokenConsumer {
+        void accept(String term, int start, int end);
+    }
+
+    private record Block(String noteId, String content) {
+    }
+
+    // One user's slice of the index. All access is synchronized on the instance.
+    static final class UserIndex {
+        private final Map<String, Block> blocks = new HashMap<>();
+        private final Map<String, Set<String>> blocksByNote = new HashMap<>();
+        private final NavigableMap<String, Set<String>> postings = new TreeMap<>();
+        private boolean dirty;
+
+        synchronized boolean isDirty() {
+            return dirty;
+        }
+
+        synchronized void put(String blockId, String noteId, String content) {
+            remove(blockId);
+            blocks.put(blockId, new Block(noteId, content));
+            blocksByNote.computeIfAbsent(noteId, id -> new HashSet<>()).add(blockId);
+            for (String term : new HashSet<>(terms(content))) {
+                postings.computeIfAbsent(term, t -> new HashSet<>()).add(blockId);
+            }
+            dirty = true;
+        }
+
+        synchronized void remove(String blockId) {
+            Block block = blocks.remove(blockId);
+            if (block == null) {
+                return;
+            }
+            Set<String> noteBlocks = blocksByNote.get(block.noteId());
+            if (noteBlocks != null) {
+                noteBlocks.remove(blockId);
+                if (noteBlocks.isEmpty()) {
+                    blocksByNote.remove(block.noteId());
+                }
+            }
+            for (String term : new HashSet<>(terms(block.content()))) {
+                Set<String> posting = postings.get(term);
+                if (posting != null) {
+                    posting.remove(blockId);
+                    if (posting.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+            dirty = true;
+        }
+
+        synchronized void removeNote(String noteId) {
+            Set<String> noteBlocks = blocksByNote.get(noteId);
+            if (noteBlocks != null) {
+                new ArrayList<>(noteBlocks).forEach(this::remove);
+            }
+        }
+
+        synchronized List<SearchResultDto> search(List<String> terms, int limit) {
+            List<Set<String>> matches = new ArrayList<>();
+            for (String term : terms.subList(0, terms.size() - 1)) {
+                Set<String> posting = postings.get(term);
+                if (posting == null) {
+                    return List.of();
+                }
+                matches.add(posting);
+            }
+            String prefix = terms.get(terms.size() - 1);
+            Set<String> prefixMatches = new HashSet<>();
+            postings.subMap(prefix, true, prefix + Character.MAX_VALUE, true)
+                    .values().forEach(prefixMatches::addAll);
+            if (prefixMatches.isEmpty()) {
+                return List.of();
+            }
+            matches.add(prefixMatches);
+
+            // Intersect starting from the rarest term
+            matches.sort(Comparator.comparingInt(Set::size));
+            Set<String> hits = new HashSet<>(matches.get(0));
+            for (int i = 1; i < matches.size() && !hits.isEmpty(); i++) {
+                hits.retainAll(matches.get(i));
+            }
+
+            Set<String> exactTerms = new HashSet<>(terms.subList(0, terms.size() - 1));
+            Map<String, List<SearchResultDto.BlockMatch>> byNote = new HashMap<>();
+            for (String blockId : hits) {
+                Block block = blocks.get(blockId);
+                byNote.computeIfAbsent(block.noteId(), id -> new ArrayList<>())
+                        .add(new SearchResultDto.BlockMatch(blockId, highlights(block.content(), exactTerms, prefix)));
+            }
+
+            return byNote.entrySet().stream()
+                    .sorted(Comparator.comparingInt((Map.Entry<String, List<SearchResultDto.BlockMatch>> e) -> e.getValue().size())
+                            .reversed()
+                            .thenComparing(Map.Entry::getKey))
+                    .limit(limit)
+                    .map(e -> new SearchResultDto(e.getKey(), e.getValue()))
+                    .toList();
+        }
+
+        private static List<SearchResultDto.Highlight> highlights(String content, Set<String> exactTerms, String prefix) {
+            List<SearchResultDto.Highlight> highlights = new ArrayList<>();
+            forEachToken(content, (term, start, end) -> {
+                if (highlights.size() < MAX_HIGHLIGHTS_PER_BLOCK && (exactTerms.contains(term) || term.startsWith(prefix))) {
+                    highlights.add(new SearchResultDto.Highlight(start, end));
+                }
+            });
+            return highlights;
+        }
+
+        // Snapshot format: version, block count, then (blockId, noteId, content) per block.
+        // Postings are derived from the content on load.
+        synchronized void writeTo(Path file) throws IOException {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeInt(blocks.size());
+                for (Map.Entry<String, Block> entry : blocks.entrySet()) {
+                    writeString(out, entry.getKey());
+                    writeString(out, entry.getValue().noteId());
+                    writeString(out, entry.getValue().content());
+                }
+            }
+            dirty = false;
+        }
+
+        static UserIndex readFrom(Path file) throws IOException {
+            UserIndex index = new UserIndex();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (in.readInt() != SNAPSHOT_VERSION) {
+                    throw new IOException("Unsupported snapshot version");
+                }
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    index.put(readString(in), readString(in), readString(in));
+                }
+            }
+            index.dirty = false;
+            return index;
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static String readString(DataInputStream in) throws IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
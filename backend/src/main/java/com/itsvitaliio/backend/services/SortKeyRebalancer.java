@@ -0,0 +1,92 @@
+package com.itsvitaliio.backend.services;
+
+import com.itsvitaliio.backend.models.NoteChild;
+import com.itsvitaliio.backend.repositories.NoteChildRepository;
+import com.itsvitaliio.backend.repositories.NoteRepository;
+import com.itsvitaliio.backend.utilities.SortKeys;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Keeps note child sort keys short. Notes whose keys grew past SortKeys.REBALANCE_LENGTH are rewritten
+// with evenly spaced keys off the request path; on startup this also backfills keys for rows that only
+// have the old integer position.
+@Service
+public class SortKeyRebalancer {
+
+    // Old rows first by key, then by their integer position, so a half-migrated note keeps its order
+    private static final Comparator<NoteChild> CURRENT_ORDER = Comparator
+            .comparing(NoteChild::getSortKey, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(NoteChild::getPosition, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final NoteRepository noteRepository;
+    private final NoteChildRepository noteChildRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public SortKeyRebalancer(NoteRepository noteRepository,
+                             NoteChildRepository noteChildRepository,
+                             PlatformTransactionManager transactionManager) {
+        this.noteRepository = noteRepository;
+        this.noteChildRepository = noteChildRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void requestRebalance(String noteId) {
+        pending.add(noteId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        List<String> noteIds = transactionTemplate.execute(status ->
+                noteChildRepository.findNoteIdsNeedingRebalance(SortKeys.REBALANCE_LENGTH));
+        if (noteIds != null && !noteIds.isEmpty()) {
+            System.out.println("SortKeyRebalancer - Rebalancing " + noteIds.size() + " notes");
+            pending.addAll(noteIds);
+            rebalancePending();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${note-children.rebalance.interval-ms:10000}")
+    public void rebalancePending() {
+        for (String noteId : new ArrayList<>(pending)) {
+            pending.remove(noteId);
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    // Writers bump the note's revision first, so holding its row keeps them out while keys move
+                    if (noteRepository.lockById(noteId).isPresent()) {
+                        rebalance(noteChildRepository.findByNoteId(noteId));
+                    }
+                });
+            } catch (Exception e) {
+                System.err.println("SortKeyRebalancer - Error rebalancing note " + noteId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Rewrites the keys of one note's children in their current order. Must run in a transaction
+    // that already holds the note; only rows whose key actually changes are written.
+    void rebalance(List<NoteChild> children) {
+        List<NoteChild> ordered = new ArrayList<>(children);
+        ordered.sort(CURRENT_ORDER);
+        List<String> keys = SortKeys.evenlySpaced(ordered.size());
+        for (int i = 0; i < ordered.size(); i++) {
+            NoteChild child = ordered.get(i);
+            if (!keys.get(i).equals(child.getSortKey())) {
+                child.setSortKey(keys.get(i));
+                noteChildRepository.save(child);
+            }
+        }
+    }
+}
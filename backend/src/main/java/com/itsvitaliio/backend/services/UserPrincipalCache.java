@@ -0,0 +1,58 @@
+package com.itsvitaliio.backend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+// Short-lived cache of the principals JwtFilter authenticates, keyed by user ID.
+// Saves the users + roles lookup on every authenticated request.
+@Component
+public class UserPrincipalCache implements MeterBinder {
+
+    private static final String CACHE_NAME = "userPrincipals";
+
+    private final Cache<String, UserDetails> cache;
+
+    public UserPrincipalCache(@Value("${auth.principal-cache.ttl:60s}") Duration ttl,
+                              @Value("${auth.principal-cache.max-size:10000}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    public UserDetails get(String userId, Function<String, UserDetails> loader) {
+        return cache.get(userId, loader);
+    }
+
+    // Drops the principal once the surrounding transaction commits, or at once outside one. Evicting earlier
+    // would let a request racing the commit load and cache the principal as it was before the change.
+    public void evict(String userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(userId);
+                }
+            });
+        } else {
+            cache.invalidate(userId);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+}
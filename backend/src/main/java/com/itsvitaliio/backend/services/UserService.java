@@ -7,16 +7,11 @@ import com.itsvitaliio.backend.dto.LoginRequest;
 import com.itsvitaliio.backend.dto.RegisterRequest;
 import com.itsvitaliio.backend.dto.ServiceResponse;
 import com.itsvitaliio.backend.exceptions.InvalidEntryException;
-import com.itsvitaliio.backend.models.ImageNode;
+import com.itsvitaliio.backend.models.AccountDeletion;
 import com.itsvitaliio.backend.models.Note;
-import com.itsvitaliio.backend.models.NoteChild;
-import com.itsvitaliio.backend.models.TextNode;
 import com.itsvitaliio.backend.models.User;
 import com.itsvitaliio.backend.models.UserNote;
-import com.itsvitaliio.backend.repositories.ImageNodeRepository;
-import com.itsvitaliio.backend.repositories.NoteChildRepository;
-import com.itsvitaliio.backend.repositories.NoteRepository;
-import com.itsvitaliio.backend.repositories.TextNodeRepository;
+import com.itsvitaliio.backend.repositories.AccountDeletionRepository;
 import com.itsvitaliio.backend.repositories.UserNoteRepository;
 import com.itsvitaliio.backend.repositories.UserRepository;
 import com.itsvitaliio.backend.utilities.IdGenerator;
@@ -29,10 +24,9 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @Service
 public class UserService implements UserDetailsService {
@@ -41,10 +35,9 @@ public class UserService implements UserDetailsService {
     private final BCryptPasswordEncoder bCryptPasswordEncoder;
     private final JwtUtil jwtUtil;
     private final UserNoteRepository userNoteRepository;
-    private final NoteChildRepository noteChildRepository;
-    private final NoteRepository noteRepository;
-    private final TextNodeRepository textNodeRepository;
-    private final ImageNodeRepository imageNodeRepository;
+    private final AccountDeletionRepository accountDeletionRepository;
+    private final UserPrincipalCache userPrincipalCache;
+    private final SearchIndexService searchIndexService;
 
     private static final String EMAIL_PATTERN = "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$";
     private static final Pattern emailPattern = Pattern.compile(EMAIL_PATTERN);
@@ -52,16 +45,15 @@ public class UserService implements UserDetailsService {
     private static final Pattern passwordPattern = Pattern.compile(PASSWORD_PATTERN);
 
     @Autowired
-    public UserService(UserRepository userRepository, BCryptPasswordEncoder bCryptPasswordEncoder, JwtUtil jwtUtil, UserNoteRepository userNoteRepository, NoteChildRepository noteChildRepository, NoteRepository noteRepository, TextNodeRepository textNodeRepository, ImageNodeRepository imageNodeRepository) {
+    public UserService(UserRepository userRepository, BCryptPasswordEncoder bCryptPasswordEncoder, JwtUtil jwtUtil, UserNoteRepository userNoteRepository, AccountDeletionRepository accountDeletionRepository, UserPrincipalCache userPrincipalCache, SearchIndexService searchIndexService) {
         this.userRepository = userRepository;
         this.bCryptPasswordEncoder = bCryptPasswordEncoder;
         this.jwtUtil = jwtUtil;
 
         this.userNoteRepository = userNoteRepository;
-        this.noteChildRepository = noteChildRepository;
-        this.noteRepository = noteRepository;
-        this.textNodeRepository = textNodeRepository;
-        this.imageNodeRepository = imageNodeRepository;
+        this.accountDeletionRepository = accountDeletionRepository;
+        this.userPrincipalCache = userPrincipalCache;
+        this.searchIndexService = searchIndexService;
     }
 
 
@@ -74,18 +66,30 @@ public class UserService implements UserDetailsService {
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = getUserByUsername(username);
+        if (user.getDeletedAt() != null) {
+            throw new UsernameNotFoundException("User not found");
+        }
         return org.springframework.security.core.userdetails.User.withUsername(username)
                 .password(user.getPassword())
                 .roles(user.getRoles().toArray(new String[0]))
                 .build();
     }
 
+    // Served from UserPrincipalCache; the users/roles lookup only runs on a miss
     public UserDetails loadUserById(String id) throws Exception {
-        User user = getUserById(id);
-        return org.springframework.security.core.userdetails.User.withUsername(user.getUsername())
-                .password(user.getPassword())
-                .roles(user.getRoles().toArray(new String[0]))
-                .build();
+        try {
+            return userPrincipalCache.get(id, userId -> {
+                User user = userRepository.findById(userId)
+                        .filter(found -> found.getDeletedAt() == null)
+                        .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+                return org.springframework.security.core.userdetails.User.withUsername(user.getUsername())
+                        .password(user.getPassword())
+                        .roles(user.getRoles().toArray(new String[0]))
+                        .build();
+            });
+        } catch (UsernameNotFoundException e) {
+            throw new Exception("User not found", e);
+        }
     }
 
     @Transactional(readOnly = true)
@@ -124,7 +128,8 @@ public class UserService implements UserDetailsService {
     }
 
     public ServiceResponse<String> loginWithEmail(LoginRequest request) {
-        Optional<User> userOptional = userRepository.findByEmail(request.getEmail());
+        Optional<User> userOptional = userRepository.findByEmail(request.getEmail())
+                .filter(user -> user.getDeletedAt() == null);
         if (userOptional.isEmpty() || !bCryptPasswordEncoder.matches(request.getPassword(), userOptional.get().getPassword())) {
             return new ServiceResponse<>(false, "Invalid email or password", null);
         }
@@ -133,7 +138,8 @@ public class UserService implements UserDetailsService {
     }
 
     public ServiceResponse<String> loginWithUsername(LoginRequest request) {
-        Optional<User> userOptional = userRepository.findByUsername(request.getUsername());
+        Optional<User> userOptional = userRepository.findByUsername(request.getUsername())
+                .filter(user -> user.getDeletedAt() == null);
         if (userOptional.isEmpty() || !bCryptPasswordEncoder.matches(request.getPassword(), userOptional.get().getPassword())) {
             return new ServiceResponse<>(false, "Invalid username or password", null);
         }
@@ -150,6 +156,7 @@ public class UserService implements UserDetailsService {
         User user = userOptional.get();
         user.setUsername(request.getNewUsername());
         userRepository.save(user);
+        userPrincipalCache.evict(userId);
     }
 
     @Transactional
@@ -165,6 +172,7 @@ public class UserService implements UserDetailsService {
         User user = userOptional.get();
         user.setEmail(request.getNewEmail());
         userRepository.save(user);
+        userPrincipalCache.evict(userId);
     }
 
     @Transactional
@@ -179,51 +187,41 @@ public class UserService implements UserDetailsService {
         }
         user.setPassword(bCryptPasswordEncoder.encode(request.getNewPassword()));
         userRepository.save(user);
+        userPrincipalCache.evict(userId);
 
         // Generate a new JWT token
         return jwtUtil.generateToken(user.getId());
     }
 
+    // Marks the account deleted and revokes access at once; AccountDeletionJob purges the data in the
+    // background. Returns the ID under which the purge reports its progress.
     @Transactional
-    public void deleteUserAccount(String userId) {
+    public String deleteUserAccount(String userId) {
         Optional<User> userOptional = userRepository.findById(userId);
         if (userOptional.isEmpty()) {
             throw new InvalidEntryException("User not found");
         }
 
         User user = userOptional.get();
-        System.out.println(user);
-
-        // Step 1: Extract all the IDs of the notes associated with the user
-        List<UserNote> userNotes = userNoteRepository.findByUserId(userId);
-        List<String> noteIds = userNotes.stream()
-                .map(UserNote::getNote)
-                .map(Note::getId)
-                .collect(Collectors.toList());
-
-        // Step 2: Extract all the IDs of note children associated with those notes
-        List<NoteChild> noteChildren = noteChildRepository.findByNoteIdIn(noteIds);
-        List<String> textNodeIds = noteChildren.stream()
-                .filter(noteChild -> noteChild.getType().equals("text"))
-                .map(NoteChild::getChildId)
-                .collect(Collectors.toList());
-        List<String> imageNodeIds = noteChildren.stream()
-                .filter(noteChild -> noteChild.getType().equals("image"))
-                .map(NoteChild::getChildId)
-                .collect(Collectors.toList());
-
-        // Step 3: Delete all entries from user_notes and note_children
-        userNoteRepository.deleteAll(userNotes);
-        noteChildRepository.deleteAll(noteChildren);
-
-        // Step 4: Delete text_nodes and image_nodes
-        textNodeRepository.deleteAllById(textNodeIds);
-        imageNodeRepository.deleteAllById(imageNodeIds);
-
-        // Step 5: Delete notes
-        noteRepository.deleteAllById(noteIds);
-
-        // Step 6: Delete the user itself
-        userRepository.delete(user);
+        if (user.getDeletedAt() != null) {
+            Optional<AccountDeletion> pending = accountDeletionRepository.findFirstByUserIdAndCompletedAtIsNull(userId);
+            if (pending.isPresent()) {
+                return pending.get().getId();
+            }
+        }
+        user.setDeletedAt(LocalDateTime.now());
+        userRepository.save(user);
+
+        AccountDeletion deletion = new AccountDeletion();
+        deletion.setUserId(userId);
+        deletion.setRequestedAt(user.getDeletedAt());
+        deletion.setNotesTotal(userNoteRepository.countByUserId(userId));
+        accountDeletionRepository.save(deletion);
+
+        // Tokens already issued stop working once this commits and the cached principal is evicted
+        userPrincipalCache.evict(userId);
+        searchIndexService.dropUser(userId);
+        System.out.println("Account deletion requested for User ID: " + userId + " (" + deletion.getNotesTotal() + " notes)");
+        return deletion.getId();
     }
-}
\ No newline at end of file
+}
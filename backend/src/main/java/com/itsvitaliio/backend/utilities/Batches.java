@@ -0,0 +1,16 @@
+package com.itsvitaliio.backend.utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Batches {
+
+    // Splits a list into consecutive views of at most size elements, used to keep IN lists bounded
+    public static <T> List<List<T>> partition(List<T> items, int size) {
+        List<List<T>> batches = new ArrayList<>();
+        for (int start = 0; start < items.size(); start += size) {
+            batches.add(items.subList(start, Math.min(start + size, items.size())));
+        }
+        return batches;
+    }
+}
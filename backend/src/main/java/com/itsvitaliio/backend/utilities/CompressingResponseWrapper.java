@@ -0,0 +1,331 @@
+package com.itsvitaliio.backend.utilities;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Set;
+
+// Compresses the body with the given codec once it reaches minSize bytes of a compressible content type.
+// Smaller bodies are held until finish() and sent as they are, with a Content-Length.
+// Responses written after the request went async (streamed downloads) always pass straight through.
+public class CompressingResponseWrapper extends HttpServletResponseWrapper {
+
+    @FunctionalInterface
+    public interface Compressor {
+        OutputStream open(OutputStream out) throws IOException;
+    }
+
+    private enum Mode { UNDECIDED, BUFFERING, COMPRESSING, PASSTHROUGH }
+
+    private final HttpServletRequest request;
+    private final String encoding;
+    private final Compressor compressor;
+    private final int minSize;
+    private final Set<String> mimeTypes;
+
+    private Mode mode = Mode.UNDECIDED;
+    private ByteArrayOutputStream buffer;
+    private OutputStream compressed;
+    private CountingOutputStream compressedCount;
+    private Long declaredLength;
+    private long originalBytes;
+    private boolean finished;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    public CompressingResponseWrapper(HttpServletRequest request, HttpServletResponse response, String encoding,
+                                      Compressor compressor, int minSize, Set<String> mimeTypes) {
+        super(response);
+        this.request = request;
+        this.encoding = encoding;
+        this.compressor = compressor;
+        this.minSize = minSize;
+        this.mimeTypes = mimeTypes;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        if (outputStream == null) {
+            outputStream = new CompressingOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+            outputStream = new CompressingOutputStream();
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, charset()));
+        }
+        return writer;
+    }
+
+    // Content-Length is only known for bodies that end up uncompressed, so it is held back until then
+    @Override
+    public void setContentLength(int length) {
+        setContentLengthLong(length);
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+        if (mode == Mode.PASSTHROUGH) {
+            super.setContentLengthLong(length);
+        } else {
+            declaredLength = length;
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) && mode != Mode.PASSTHROUGH) {
+            declaredLength = value != null ? Long.parseLong(value) : null;
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) && mode != Mode.PASSTHROUGH) {
+            declaredLength = value != null ? Long.parseLong(value) : null;
+        } else {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void sendError(int status, String message) throws IOException {
+        passThrough();
+        super.sendError(status, message);
+    }
+
+    @Override
+    public void sendError(int status) throws IOException {
+        passThrough();
+        super.sendError(status);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        passThrough();
+        super.sendRedirect(location);
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (mode == Mode.COMPRESSING) {
+            compressed.flush();
+        } else if (mode != Mode.BUFFERING) {
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        if (mode == Mode.BUFFERING) {
+            buffer.reset();
+            originalBytes = 0;
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        if (mode == Mode.BUFFERING) {
+            mode = Mode.UNDECIDED;
+            buffer = null;
+            originalBytes = 0;
+            declaredLength = null;
+        }
+    }
+
+    // Writes out whatever is still held back; called once the handler is done with the response
+    public void finish() throws IOException {
+        if (finished || request.isAsyncStarted()) {
+            return;
+        }
+        finished = true;
+        if (writer != null) {
+            writer.flush();
+        }
+        if (mode == Mode.BUFFERING) {
+            super.setContentLength(buffer.size());
+            super.getOutputStream().write(buffer.toByteArray());
+            buffer = null;
+            mode = Mode.PASSTHROUGH;
+        } else if (mode == Mode.COMPRESSING) {
+            compressed.close();
+        } else if (mode == Mode.UNDECIDED && declaredLength != null) {
+            super.setContentLengthLong(declaredLength);
+        }
+    }
+
+    public boolean isCompressed() {
+        return mode == Mode.COMPRESSING;
+    }
+
+    public long getOriginalBytes() {
+        return originalBytes;
+    }
+
+    public long getCompressedBytes() {
+        return compressedCount != null ? compressedCount.count : 0;
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        if (mode == Mode.UNDECIDED) {
+            decide();
+        }
+        originalBytes += length;
+        switch (mode) {
+            case PASSTHROUGH -> super.getOutputStream().write(bytes, offset, length);
+            case COMPRESSING -> compressed.write(bytes, offset, length);
+            default -> {
+                buffer.write(bytes, offset, length);
+                if (buffer.size() >= minSize) {
+                    startCompression();
+                }
+            }
+        }
+    }
+
+    private void decide() {
+        if (request.isAsyncStarted() || !isCompressible()) {
+            passThrough();
+            return;
+        }
+        super.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (declaredLength != null && declaredLength < minSize) {
+            passThrough();
+            return;
+        }
+        buffer = new ByteArrayOutputStream(Math.min(minSize, 8192));
+        mode = Mode.BUFFERING;
+    }
+
+    private boolean isCompressible() {
+        int status = getStatus();
+        if (status == SC_NO_CONTENT || status == SC_NOT_MODIFIED || status == SC_PARTIAL_CONTENT) {
+            return false;
+        }
+        if (getHeader(HttpHeaders.CONTENT_ENCODING) != null) {
+            return false;
+        }
+        String contentType = getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        int parameters = contentType.indexOf(';');
+        String mimeType = (parameters >= 0 ? contentType.substring(0, parameters) : contentType).trim();
+        return mimeTypes.contains(mimeType.toLowerCase(Locale.ROOT));
+    }
+
+    private void passThrough() {
+        if (mode == Mode.UNDECIDED && declaredLength != null) {
+            super.setContentLengthLong(declaredLength);
+        }
+        mode = Mode.PASSTHROUGH;
+    }
+
+    private void startCompression() throws IOException {
+        super.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+        compressedCount = new CountingOutputStream(super.getOutputStream());
+        compressed = compressor.open(compressedCount);
+        mode = Mode.COMPRESSING;
+        buffer.writeTo(compressed);
+        buffer = null;
+    }
+
+    private Charset charset() {
+        String characterEncoding = getCharacterEncoding();
+        return characterEncoding != null ? Charset.forName(characterEncoding) : StandardCharsets.UTF_8;
+    }
+
+    private class CompressingOutputStream extends ServletOutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            CompressingResponseWrapper.this.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            CompressingResponseWrapper.this.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // A buffered body is not committed by a flush, so it can still go out uncompressed
+            if (mode == Mode.COMPRESSING) {
+                compressed.flush();
+            } else if (mode == Mode.PASSTHROUGH) {
+                CompressingResponseWrapper.super.getOutputStream().flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            // What the servlet API throws when non-blocking I/O is not available
+            throw new IllegalStateException("Non-blocking writes are not supported by compressed responses");
+        }
+    }
+
+    // Counts what reaches the client; closing the codec ends its frame but leaves the response open
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.itsvitaliio.backend.utilities;
+
+import com.itsvitaliio.backend.exceptions.InvalidEntryException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Opaque keyset cursor for the notes list: the (lastInteractedWith, id) of the last row returned
+public record NoteCursor(LocalDateTime lastInteractedWith, String noteId) {
+
+    private static final char SEPARATOR = '|';
+
+    public String encode() {
+        String raw = lastInteractedWith.toString() + SEPARATOR + noteId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static NoteCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new InvalidEntryException("Invalid cursor");
+            }
+            return new NoteCursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidEntryException("Invalid cursor");
+        }
+    }
+}
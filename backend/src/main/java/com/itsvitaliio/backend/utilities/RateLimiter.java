@@ -0,0 +1,28 @@
+package com.itsvitaliio.backend.utilities;
+
+import java.util.concurrent.TimeUnit;
+
+// Spaces out background work to at most permitsPerSecond on average by sleeping the caller.
+// Not thread-safe: each worker gets its own limiter.
+public class RateLimiter {
+
+    private final double nanosPerPermit;
+    private long nextFree = System.nanoTime();
+
+    public RateLimiter(double permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        }
+        this.nanosPerPermit = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+    }
+
+    // Waits for the time paid by earlier calls, then charges these permits to the next one
+    public void acquire(int permits) throws InterruptedException {
+        long now = System.nanoTime();
+        long wait = nextFree - now;
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        nextFree = Math.max(nextFree, now) + (long) (permits * nanosPerPermit);
+    }
+}
@@ -6,54 +6,107 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletRequestWrapper;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.stream.Collectors;
 
+// Keeps a copy of at most maxCapturedBytes of the body as the application reads it.
+// The body is never read ahead or buffered as a whole; the rest streams straight through.
 public class RequestWrapper extends HttpServletRequestWrapper {
 
-    private final String body;
+    private final int maxCapturedBytes;
+    private final ByteArrayOutputStream captured;
+    private long bytesRead;
+    private ServletInputStream inputStream;
+    private BufferedReader reader;
 
-    public RequestWrapper(HttpServletRequest request) throws IOException {
+    public RequestWrapper(HttpServletRequest request, int maxCapturedBytes) {
         super(request);
-        body = request.getReader().lines().collect(Collectors.joining(System.lineSeparator()));
-        // System.out.println("Request Body: " + body);
+        this.maxCapturedBytes = maxCapturedBytes;
+        this.captured = new ByteArrayOutputStream(Math.min(maxCapturedBytes, 1024));
     }
 
     @Override
     public ServletInputStream getInputStream() throws IOException {
-        ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
-        return new ServletInputStream() {
-            @Override
-            public int read() throws IOException {
-                return byteArrayInputStream.read();
-            }
-
-            @Override
-            public boolean isFinished() {
-                return byteArrayInputStream.available() == 0;
-            }
-
-            @Override
-            public boolean isReady() {
-                return true;
-            }
-
-            @Override
-            public void setReadListener(ReadListener readListener) {
-                // No implementation needed
-            }
-        };
+        if (inputStream == null) {
+            inputStream = new CapturingInputStream(super.getInputStream());
+        }
+        return inputStream;
     }
 
     @Override
     public BufferedReader getReader() throws IOException {
-        return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        if (reader == null) {
+            reader = new BufferedReader(new InputStreamReader(getInputStream(), charset()));
+        }
+        return reader;
     }
 
+    // The captured prefix of what has been read so far
     public String getBody() {
-        return body;
+        return captured.toString(charset());
+    }
+
+    public boolean isTruncated() {
+        return bytesRead > maxCapturedBytes;
+    }
+
+    private Charset charset() {
+        String encoding = getCharacterEncoding();
+        return encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+    }
+
+    private void capture(byte[] buffer, int offset, int length) {
+        int room = maxCapturedBytes - captured.size();
+        if (room > 0) {
+            captured.write(buffer, offset, Math.min(room, length));
+        }
+        bytesRead += length;
+    }
+
+    private class CapturingInputStream extends ServletInputStream {
+        private final ServletInputStream delegate;
+
+        CapturingInputStream(ServletInputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b != -1) {
+                if (captured.size() < maxCapturedBytes) {
+                    captured.write(b);
+                }
+                bytesRead++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = delegate.read(buffer, offset, length);
+            if (count > 0) {
+                capture(buffer, offset, count);
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            delegate.setReadListener(readListener);
+        }
     }
 }
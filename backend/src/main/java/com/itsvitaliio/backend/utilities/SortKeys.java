@@ -0,0 +1,166 @@
+package com.itsvitaliio.backend.utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Fractional order keys: base-36 digits read as a fraction after the point, compared as plain strings.
+// A key never ends in '0', so there is always room for a new key before, after or between existing ones.
+// Only lowercase digits are used so case-insensitive database collations sort them the same way.
+public class SortKeys {
+
+    private static final String DIGITS = "0123456789abcdefghijklmnopqrstuvwxyz";
+    private static final int BASE = DIGITS.length();
+
+    // Past this length a note is queued for rebalancing in the background
+    public static final int REBALANCE_LENGTH = 24;
+    // Past this length the note is rebalanced inline before the key is used
+    public static final int MAX_LENGTH = 200;
+
+    // True for keys this class could have produced, e.g. when they come from an imported archive
+    public static boolean isValid(String key) {
+        if (key == null || key.isEmpty() || key.length() > MAX_LENGTH || key.endsWith("0")) {
+            return false;
+        }
+        return key.chars().allMatch(c -> DIGITS.indexOf(c) >= 0);
+    }
+
+    // A key strictly between before and after; null leaves that side open
+    public static String between(String before, String after) {
+        if (before != null && after != null && before.compareTo(after) >= 0) {
+            throw new IllegalArgumentException("Sort key " + before + " is not before " + after);
+        }
+        return midpoint(before != null ? before : "", after);
+    }
+
+    // count ascending keys strictly between before and after, bisected so their length grows with log(count)
+    public static List<String> between(String before, String after, int count) {
+        List<String> keys = new ArrayList<>(count);
+        fill(before, after, count, keys);
+        return keys;
+    }
+
+    // count short keys spread evenly over the whole key space, used for backfills and rebalancing
+    public static List<String> evenlySpaced(int count) {
+        int width = 1;
+        long range = BASE;
+        while (range < (long) (count + 1) * BASE) {
+            width++;
+            range *= BASE;
+        }
+        long step = range / (count + 1);
+
+        List<String> keys = new ArrayList<>(count);
+        char[] digits = new char[width];
+        for (int i = 1; i <= count; i++) {
+            long value = i * step;
+            for (int d = width - 1; d >= 0; d--) {
+                digits[d] = DIGITS.charAt((int) (value % BASE));
+                value /= BASE;
+            }
+            int length = width;
+            while (digits[length - 1] == '0') {
+                length--;
+            }
+            keys.add(new String(digits, 0, length));
+        }
+        return keys;
+    }
+
+    // Given the current keys in the desired order (null for items without one), keeps the longest
+    // run of keys that is already ascending and assigns new keys to everything else
+    public static List<String> reconcile(List<String> current) {
+        int size = current.size();
+        boolean[] keep = longestAscending(current);
+
+        String[] result = new String[size];
+        String previous = null;
+        int i = 0;
+        while (i < size) {
+            if (keep[i]) {
+                result[i] = current.get(i);
+                previous = result[i];
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end < size && !keep[end]) {
+                end++;
+            }
+            String next = end < size ? current.get(end) : null;
+            List<String> generated = between(previous, next, end - i);
+            for (int j = i; j < end; j++) {
+                result[j] = generated.get(j - i);
+            }
+            i = end;
+        }
+        return Arrays.asList(result);
+    }
+
+    private static boolean[] longestAscending(List<String> keys) {
+        int size = keys.size();
+        int[] tails = new int[size];
+        int[] previous = new int[size];
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            String key = keys.get(i);
+            if (key == null) {
+                continue;
+            }
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys.get(tails[mid]).compareTo(key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        boolean[] keep = new boolean[size];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            keep[i] = true;
+        }
+        return keep;
+    }
+
+    private static void fill(String before, String after, int count, List<String> out) {
+        if (count == 0) {
+            return;
+        }
+        String mid = between(before, after);
+        int left = (count - 1) / 2;
+        fill(before, mid, left, out);
+        out.add(mid);
+        fill(mid, after, count - 1 - left, out);
+    }
+
+    private static String midpoint(String a, String b) {
+        if (b != null) {
+            // Copy the shared prefix, treating a as padded with zeros
+            int n = 0;
+            while (n < b.length() && (n < a.length() ? a.charAt(n) : '0') == b.charAt(n)) {
+                n++;
+            }
+            if (n > 0) {
+                return b.substring(0, n) + midpoint(n < a.length() ? a.substring(n) : "", b.substring(n));
+            }
+        }
+        int digitA = a.isEmpty() ? 0 : DIGITS.indexOf(a.charAt(0));
+        int digitB = b != null ? DIGITS.indexOf(b.charAt(0)) : BASE;
+        if (digitB - digitA > 1) {
+            return String.valueOf(DIGITS.charAt((digitA + digitB) / 2));
+        }
+        if (b != null && b.length() > 1) {
+            return b.substring(0, 1);
+        }
+        return DIGITS.charAt(digitA) + midpoint(a.isEmpty() ? "" : a.substring(1), null);
+    }
+}
@@ -0,0 +1,57 @@
+package com.itsvitaliio.backend.utilities;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Counts the SQL statements Hibernate prepares on the current thread while a scope is open.
+// Registered as Hibernate's statement inspector; every repository call goes through Hibernate,
+// so this sees native queries and batched writes as well as derived queries.
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    // Opens a scope on the current thread; closing it restores whichever scope was open before
+    public static Scope open() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Scope scope = CURRENT.get();
+        if (scope != null) {
+            scope.increment();
+        }
+        return sql;
+    }
+
+    public static final class Scope implements AutoCloseable {
+
+        private final Scope parent;
+        private long count;
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        private void increment() {
+            count++;
+            if (parent != null) {
+                parent.increment();
+            }
+        }
+
+        public long count() {
+            return count;
+        }
+
+        @Override
+        public void close() {
+            if (parent != null) {
+                CURRENT.set(parent);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+}
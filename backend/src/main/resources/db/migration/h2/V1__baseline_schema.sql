@@ -0,0 +1,49 @@
+-- H2 counterpart of the MySQL baseline, used by the tests.
+
+CREATE TABLE users (
+    id VARCHAR(255) PRIMARY KEY,
+    username VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE user_roles (
+    user_id VARCHAR(255) NOT NULL,
+    roles VARCHAR(255),
+    CONSTRAINT FKhfh9dx7w3ubf1co1vdev94g3f FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE notes (
+    id VARCHAR(255) PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    last_interacted_with TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE user_notes (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id VARCHAR(255) NOT NULL,
+    note_id VARCHAR(255) NOT NULL,
+    FOREIGN KEY (user_id) REFERENCES users (id),
+    FOREIGN KEY (note_id) REFERENCES notes (id)
+);
+
+-- Unbounded VARCHAR rather than TEXT: H2 maps TEXT to a CLOB, which would not validate against the entity
+CREATE TABLE text_nodes (
+    id VARCHAR(255) PRIMARY KEY,
+    content VARCHAR NOT NULL
+);
+
+CREATE TABLE image_nodes (
+    id VARCHAR(255) PRIMARY KEY,
+    image_path VARCHAR(255) NOT NULL
+);
+
+-- VARCHAR rather than the MySQL ENUM, which the entity's String would not validate against
+CREATE TABLE note_children (
+    id VARCHAR(255) PRIMARY KEY,
+    note_id VARCHAR(255) NOT NULL,
+    type VARCHAR(255) NOT NULL,
+    child_id VARCHAR(255) NOT NULL,
+    position INT NOT NULL,
+    CONSTRAINT fk_note_children_note FOREIGN KEY (note_id) REFERENCES notes (id)
+);
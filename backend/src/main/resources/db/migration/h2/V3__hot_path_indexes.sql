@@ -0,0 +1,3 @@
+CREATE INDEX idx_user_notes_user_note ON user_notes (user_id, note_id);
+
+CREATE INDEX idx_users_username ON users (username);
@@ -0,0 +1,14 @@
+ALTER TABLE users ADD COLUMN deleted_at TIMESTAMP(6) NULL;
+
+CREATE TABLE account_deletions (
+    id VARCHAR(255) NOT NULL,
+    user_id VARCHAR(255) NOT NULL,
+    requested_at TIMESTAMP(6) NOT NULL,
+    completed_at TIMESTAMP(6) NULL,
+    notes_total BIGINT NOT NULL,
+    notes_purged BIGINT NOT NULL,
+    files_purged BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_account_deletions_completed_at ON account_deletions (completed_at);
@@ -0,0 +1,3 @@
+CREATE INDEX idx_note_children_child_id ON note_children (child_id);
+
+CREATE INDEX idx_image_nodes_image_path ON image_nodes (image_path);
@@ -0,0 +1 @@
+ALTER TABLE users ADD COLUMN notes_revision BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,50 @@
+-- Schema as it stood when migrations were introduced: the tables of the old init.sql, plus user_roles,
+-- which ddl-auto added. Existing databases are baselined at this version instead of running it,
+-- so every later change belongs in a migration of its own.
+
+CREATE TABLE IF NOT EXISTS users (
+    id VARCHAR(255) PRIMARY KEY,
+    username VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS user_roles (
+    user_id VARCHAR(255) NOT NULL,
+    roles VARCHAR(255)
+) ENGINE = InnoDB;
+
+ALTER TABLE user_roles ADD CONSTRAINT FKhfh9dx7w3ubf1co1vdev94g3f FOREIGN KEY (user_id) REFERENCES users (id);
+
+CREATE TABLE IF NOT EXISTS notes (
+    id VARCHAR(255) PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    last_interacted_with TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS user_notes (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id VARCHAR(255) NOT NULL,
+    note_id VARCHAR(255) NOT NULL,
+    FOREIGN KEY (user_id) REFERENCES users(id),
+    FOREIGN KEY (note_id) REFERENCES notes(id)
+);
+
+CREATE TABLE IF NOT EXISTS text_nodes (
+    id VARCHAR(255) PRIMARY KEY,
+    content TEXT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS image_nodes (
+    id VARCHAR(255) PRIMARY KEY,
+    image_path VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS note_children (
+    id VARCHAR(255) PRIMARY KEY,
+    note_id VARCHAR(255) NOT NULL,
+    type ENUM('text', 'image') NOT NULL,
+    child_id VARCHAR(255) NOT NULL,
+    position INT NOT NULL,
+    FOREIGN KEY (note_id) REFERENCES notes(id)
+);
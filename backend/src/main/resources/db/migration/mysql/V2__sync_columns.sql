@@ -0,0 +1,14 @@
+-- Columns the delta sync, sort keys and content-addressed images added to the baseline tables.
+
+-- Bumped by every change to a note's children, so clients can sync from the revision they hold
+ALTER TABLE notes ADD COLUMN revision BIGINT NOT NULL DEFAULT 0;
+
+-- position is the pre-sort-key order, kept until every row has a sort_key
+ALTER TABLE note_children ADD COLUMN sort_key VARCHAR(255) NULL;
+CREATE INDEX idx_note_children_note_sort_key ON note_children (note_id, sort_key);
+
+-- Images stored before content addressing keep only their image_path
+ALTER TABLE image_nodes ADD COLUMN content_hash VARCHAR(64) NULL;
+ALTER TABLE image_nodes ADD COLUMN content_type VARCHAR(255) NULL;
+ALTER TABLE image_nodes ADD COLUMN size_bytes BIGINT NULL;
+CREATE INDEX idx_image_nodes_content_hash ON image_nodes (content_hash);
@@ -0,0 +1,10 @@
+-- The baseline's ENUM type, and the VARCHAR(255) content of databases that ddl-auto created without init.sql,
+-- are aligned with the entity mappings so schema validation passes everywhere.
+ALTER TABLE note_children MODIFY type VARCHAR(255) NOT NULL;
+ALTER TABLE text_nodes MODIFY content TEXT NOT NULL;
+
+-- Every note access checks ownership by (user_id, note_id)
+CREATE INDEX idx_user_notes_user_note ON user_notes (user_id, note_id);
+
+-- Username login and registration look users up by name
+CREATE INDEX idx_users_username ON users (username);
@@ -0,0 +1,17 @@
+-- Account deletion runs as a background job: the user row is marked first and kept until
+-- their notes are purged, and the job row outlives it so progress can still be reported.
+ALTER TABLE users ADD COLUMN deleted_at DATETIME(6) NULL;
+
+CREATE TABLE account_deletions (
+    id VARCHAR(255) NOT NULL,
+    user_id VARCHAR(255) NOT NULL,
+    requested_at DATETIME(6) NOT NULL,
+    completed_at DATETIME(6) NULL,
+    notes_total BIGINT NOT NULL,
+    notes_purged BIGINT NOT NULL,
+    files_purged BIGINT NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+-- The job polls for unfinished deletions
+CREATE INDEX idx_account_deletions_completed_at ON account_deletions (completed_at);
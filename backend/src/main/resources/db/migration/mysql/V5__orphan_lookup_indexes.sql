@@ -0,0 +1,5 @@
+-- The orphan collector looks up, for every text and image row, whether a note child points to it
+CREATE INDEX idx_note_children_child_id ON note_children (child_id);
+
+-- and, for image files stored before content addressing, whether a row still names the file
+CREATE INDEX idx_image_nodes_image_path ON image_nodes (image_path);
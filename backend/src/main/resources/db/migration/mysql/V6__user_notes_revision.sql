@@ -0,0 +1,2 @@
+-- Bumped by every change to the notes list of a user, so clients can revalidate it with If-None-Match
+ALTER TABLE users ADD COLUMN notes_revision BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,2 @@
+-- position only orders rows that predate sort keys; rows written since leave it NULL
+ALTER TABLE note_children MODIFY position INT NULL;
@@ -0,0 +1,91 @@
+package com.itsvitaliio.backend.config;
+
+import com.itsvitaliio.backend.filter.JwtFilter;
+import com.itsvitaliio.backend.services.UserService;
+import com.itsvitaliio.backend.utilities.JwtUtil;
+import io.jsonwebtoken.Jwts;
+import jakarta.servlet.Filter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// Only the security chain and no handlers, so anything that gets past security is a 404
+@SpringJUnitWebConfig(SecurityConfigTest.Config.class)
+class SecurityConfigTest {
+
+	@Configuration
+	@EnableWebMvc
+	@Import({SecurityConfig.class, JwtFilter.class})
+	static class Config {
+
+		@Bean
+		UserService userService() {
+			return mock(UserService.class);
+		}
+
+		@Bean
+		JwtUtil jwtUtil() {
+			return mock(JwtUtil.class);
+		}
+	}
+
+	@Autowired
+	private WebApplicationContext context;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		mockMvc = MockMvcBuilders.webAppContextSetup(context)
+				.addFilters(context.getBean("springSecurityFilterChain", Filter.class))
+				.build();
+	}
+
+	@Test
+	void metricsNeedTheMetricsRole() throws Exception {
+		signedIn("user-token", "user-1", "USER");
+		signedIn("metrics-token", "user-2", "METRICS");
+
+		assertThat(status(get("/actuator/prometheus"))).isEqualTo(401);
+		assertThat(status(get("/actuator/metrics/jvm.memory.used"))).isEqualTo(401);
+		assertThat(status(get("/actuator/prometheus").header("Authorization", "Bearer user-token"))).isEqualTo(403);
+		assertThat(status(get("/actuator/prometheus").header("Authorization", "Bearer metrics-token"))).isEqualTo(404);
+	}
+
+	@Test
+	void healthAndTheApiStayReachable() throws Exception {
+		assertThat(status(get("/actuator/health"))).isEqualTo(404);
+		assertThat(status(get("/actuator/health/liveness"))).isEqualTo(404);
+		assertThat(status(get("/register"))).isEqualTo(404);
+	}
+
+	private void signedIn(String token, String userId, String role) throws Exception {
+		when(jwtUtil.verify(token)).thenReturn(Jwts.claims().setSubject(userId));
+		when(userService.loadUserById(userId)).thenReturn(User.withUsername(userId).password("x").roles(role).build());
+	}
+
+	private int status(RequestBuilder request) throws Exception {
+		return mockMvc.perform(request).andReturn().getResponse().getStatus();
+	}
+}
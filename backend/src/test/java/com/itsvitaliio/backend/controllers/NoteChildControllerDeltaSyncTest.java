@@ -0,0 +1,77 @@
+package com.itsvitaliio.backend.controllers;
+
+import com.itsvitaliio.backend.dto.DeltaSyncRequest;
+import com.itsvitaliio.backend.dto.DeltaSyncResponse;
+import com.itsvitaliio.backend.exceptions.InvalidEntryException;
+import com.itsvitaliio.backend.exceptions.RevisionConflictException;
+import com.itsvitaliio.backend.filter.JwtFilter;
+import com.itsvitaliio.backend.repositories.ImageNodeRepository;
+import com.itsvitaliio.backend.services.ImageStore;
+import com.itsvitaliio.backend.services.ImageVariantService;
+import com.itsvitaliio.backend.services.NoteChildService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class NoteChildControllerDeltaSyncTest {
+
+	private final NoteChildService noteChildService = mock(NoteChildService.class);
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		mockMvc = MockMvcBuilders.standaloneSetup(new NoteChildController(noteChildService,
+				mock(ImageNodeRepository.class), mock(ImageVariantService.class), mock(ImageStore.class))).build();
+	}
+
+	@Test
+	void appliedOperationsReturnTheNewRevisionAndAssignedIds() throws Exception {
+		when(noteChildService.applyOperations(eq("note-1"), any(DeltaSyncRequest.class)))
+				.thenReturn(new DeltaSyncResponse(4, Map.of("tmp-1", "child-9")));
+
+		mockMvc.perform(operations("note-1", "{\"baseRevision\":3,\"operations\":[{\"op\":\"insert\",\"id\":\"tmp-1\",\"type\":\"text\",\"content\":\"x\",\"position\":0}]}"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.revision").value(4))
+				.andExpect(jsonPath("$.assignedIds.tmp-1").value("child-9"));
+	}
+
+	@Test
+	void staleRevisionAnswersConflictWithTheCurrentRevision() throws Exception {
+		when(noteChildService.applyOperations(eq("note-1"), any(DeltaSyncRequest.class)))
+				.thenThrow(new RevisionConflictException("Note has moved on to revision 7", 7));
+
+		mockMvc.perform(operations("note-1", "{\"baseRevision\":3,\"operations\":[]}"))
+				.andExpect(status().isConflict())
+				.andExpect(jsonPath("$.revision").value(7))
+				.andExpect(jsonPath("$.assignedIds").isEmpty());
+	}
+
+	@Test
+	void invalidOperationsAreBadRequests() throws Exception {
+		when(noteChildService.applyOperations(eq("note-1"), any(DeltaSyncRequest.class)))
+				.thenThrow(new InvalidEntryException("Note child not found: x"));
+
+		mockMvc.perform(operations("note-1", "{\"baseRevision\":3,\"operations\":[{\"op\":\"delete\",\"id\":\"x\"}]}"))
+				.andExpect(status().isBadRequest());
+	}
+
+	private static MockHttpServletRequestBuilder operations(String noteId, String body) {
+		return post("/notatky/note-children/sync/" + noteId + "/operations")
+				.requestAttr(JwtFilter.AUTHENTICATED_USER_ID, "user-1")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(body);
+	}
+}
@@ -0,0 +1,149 @@
+package com.itsvitaliio.backend.controllers;
+
+import com.itsvitaliio.backend.models.ImageNode;
+import com.itsvitaliio.backend.repositories.ImageNodeRepository;
+import com.itsvitaliio.backend.services.ImageStore;
+import com.itsvitaliio.backend.services.ImageVariantService;
+import com.itsvitaliio.backend.services.NoteChildService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class NoteChildControllerImageTest {
+
+	private final ImageStore imageStore = new ImageStore("target/test-images");
+	private final ImageVariantService imageVariantService = new ImageVariantService(imageStore, new int[]{160, 480}, 1, 10);
+	private final ImageNodeRepository imageNodeRepository = mock(ImageNodeRepository.class);
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		mockMvc = MockMvcBuilders.standaloneSetup(new NoteChildController(mock(NoteChildService.class),
+				imageNodeRepository, imageVariantService, imageStore)).build();
+	}
+
+	@Test
+	void widthSelectsTheClosestVariantOnceGenerated() throws Exception {
+		ImageStore.StoredImage stored = imageStore.store(new ByteArrayInputStream(jpeg(800, 600)));
+		when(imageNodeRepository.findById("image-1")).thenReturn(Optional.of(new ImageNode("image-1", stored.path(),
+				stored.contentHash(), stored.contentType(), stored.sizeBytes())));
+
+		// Until the variant exists the original is served, and must be revalidated
+		byte[] first = mockMvc.perform(get("/notatky/note-children/images/image-1").param("w", "300"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Cache-Control", "no-cache"))
+				.andExpect(header().string("ETag", "\"" + stored.contentHash() + "\""))
+				.andReturn().getResponse().getContentAsByteArray();
+		assertThat(first).hasSize((int) stored.sizeBytes());
+
+		long deadline = System.nanoTime() + 10_000_000_000L;
+		while (!Files.exists(Path.of(stored.path() + ".w480.jpg")) && System.nanoTime() < deadline) {
+			Thread.sleep(20);
+		}
+
+		byte[] variant = mockMvc.perform(get("/notatky/note-children/images/image-1").param("w", "300"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Type", "image/jpeg"))
+				.andExpect(header().string("ETag", "\"" + stored.contentHash() + "-w480\""))
+				.andReturn().getResponse().getContentAsByteArray();
+		assertThat(ImageIO.read(new ByteArrayInputStream(variant)).getWidth()).isEqualTo(480);
+
+		mockMvc.perform(get("/notatky/note-children/images/image-1").param("w", "100"))
+				.andExpect(header().string("ETag", "\"" + stored.contentHash() + "-w160\""));
+	}
+
+	@Test
+	void imagesOutsideTheStoreAreNotServed() throws Exception {
+		Path outside = Files.createTempFile("outside-store-", ".jpg");
+		try {
+			Files.write(outside, jpeg(800, 600));
+			when(imageNodeRepository.findById("image-2")).thenReturn(Optional.of(new ImageNode("image-2", outside.toString(),
+					null, null, null)));
+
+			mockMvc.perform(get("/notatky/note-children/images/image-2")).andExpect(status().isNotFound());
+			mockMvc.perform(get("/notatky/note-children/images/image-2").param("w", "160")).andExpect(status().isNotFound());
+			assertThat(Path.of(outside + ".w160.jpg")).doesNotExist();
+		} finally {
+			Files.deleteIfExists(outside);
+		}
+	}
+
+	@Test
+	void onlyRasterImagesAreRenderedInline() throws Exception {
+		String svg = "<svg xmlns=\"http://www.w3.org/2000/svg\"><script>alert('" + UUID.randomUUID() + "')</script></svg>";
+		ImageStore.StoredImage script = imageStore.store(new ByteArrayInputStream(svg.getBytes(StandardCharsets.UTF_8)));
+		assertThat(script.contentType()).isEqualTo("application/octet-stream");
+		// A row from before uploads were sniffed, still carrying the type the client declared
+		when(imageNodeRepository.findById("image-3")).thenReturn(Optional.of(new ImageNode("image-3", script.path(),
+				script.contentHash(), "image/svg+xml", script.sizeBytes())));
+
+		mockMvc.perform(get("/notatky/note-children/images/image-3"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Type", "application/octet-stream"))
+				.andExpect(header().string("Content-Disposition", "attachment"))
+				.andExpect(header().string("X-Content-Type-Options", "nosniff"));
+
+		ImageStore.StoredImage photo = imageStore.store(new ByteArrayInputStream(jpeg(40, 30)));
+		when(imageNodeRepository.findById("image-4")).thenReturn(Optional.of(new ImageNode("image-4", photo.path(),
+				photo.contentHash(), "text/html", photo.sizeBytes())));
+
+		mockMvc.perform(get("/notatky/note-children/images/image-4"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Type", "image/jpeg"))
+				.andExpect(header().string("Content-Disposition", "inline"));
+	}
+
+	@Test
+	void revalidationAndRangesUseTheContentHash() throws Exception {
+		ImageStore.StoredImage stored = imageStore.store(new ByteArrayInputStream(jpeg(40, 30)));
+		when(imageNodeRepository.findById("image-5")).thenReturn(Optional.of(new ImageNode("image-5", stored.path(),
+				stored.contentHash(), stored.contentType(), stored.sizeBytes())));
+		String etag = "\"" + stored.contentHash() + "\"";
+
+		mockMvc.perform(get("/notatky/note-children/images/image-5").header("If-None-Match", etag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("ETag", etag))
+				.andExpect(header().string("Cache-Control", "private, max-age=86400"));
+
+		byte[] head = mockMvc.perform(get("/notatky/note-children/images/image-5")
+						.header("Range", "bytes=0-2").header("If-Range", etag))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string("Content-Range", "bytes 0-2/" + stored.sizeBytes()))
+				.andReturn().getResponse().getContentAsByteArray();
+		assertThat(head).containsExactly(0xFF, 0xD8, 0xFF);
+
+		mockMvc.perform(get("/notatky/note-children/images/image-5").header("If-None-Match", "\"other\""))
+				.andExpect(status().isOk())
+				.andExpect(header().longValue("Content-Length", stored.sizeBytes()));
+	}
+
+	// Random pixels, so every test run stores a new file rather than one left by an earlier run
+	private static byte[] jpeg(int width, int height) throws Exception {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		for (int x = 0; x < width; x += 10) {
+			image.setRGB(x, ThreadLocalRandom.current().nextInt(height), ThreadLocalRandom.current().nextInt());
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "jpg", out);
+		return out.toByteArray();
+	}
+}
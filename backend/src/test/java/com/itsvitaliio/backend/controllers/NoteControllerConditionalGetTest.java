@@ -0,0 +1,93 @@
+package com.itsvitaliio.backend.controllers;
+
+import com.itsvitaliio.backend.dto.NoteChildDto;
+import com.itsvitaliio.backend.dto.NoteListItemDto;
+import com.itsvitaliio.backend.filter.JwtFilter;
+import com.itsvitaliio.backend.repositories.ImageNodeRepository;
+import com.itsvitaliio.backend.services.ImageStore;
+import com.itsvitaliio.backend.services.ImageVariantService;
+import com.itsvitaliio.backend.services.NoteChildService;
+import com.itsvitaliio.backend.services.NoteDocumentCache;
+import com.itsvitaliio.backend.services.NoteService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// An unchanged list or note answers 304 from its revision alone, without loading what it describes
+class NoteControllerConditionalGetTest {
+
+	private final NoteService noteService = mock(NoteService.class);
+	private final NoteChildService noteChildService = mock(NoteChildService.class);
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		mockMvc = MockMvcBuilders.standaloneSetup(new NoteController(noteService),
+				new NoteChildController(noteChildService, mock(ImageNodeRepository.class),
+						mock(ImageVariantService.class), mock(ImageStore.class))).build();
+	}
+
+	@Test
+	void notesListIsNotModifiedWhileItsRevisionIsUnchanged() throws Exception {
+		when(noteService.getNotesRevision("user-1")).thenReturn(Optional.of(3L));
+		when(noteService.getAllNotesForUser("user-1")).thenReturn(List.of(new NoteListItemDto()));
+
+		mockMvc.perform(get("/notatky/notes").requestAttr(JwtFilter.AUTHENTICATED_USER_ID, "user-1"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", "W/\"user-1-3\""))
+				.andExpect(header().string("Cache-Control", "no-cache, private"))
+				.andExpect(jsonPath("$.length()").value(1));
+
+		mockMvc.perform(get("/notatky/notes").requestAttr(JwtFilter.AUTHENTICATED_USER_ID, "user-1")
+						.header("If-None-Match", "W/\"user-1-3\""))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+		verify(noteService).getAllNotesForUser("user-1");
+
+		// Another account's copy of the same revision number is not a match
+		when(noteService.getNotesRevision("user-2")).thenReturn(Optional.of(3L));
+		mockMvc.perform(get("/notatky/notes").requestAttr(JwtFilter.AUTHENTICATED_USER_ID, "user-2")
+						.header("If-None-Match", "W/\"user-1-3\""))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", "W/\"user-2-3\""));
+	}
+
+	@Test
+	void noteChildrenAreNotModifiedWhileTheNoteRevisionIsUnchanged() throws Exception {
+		when(noteChildService.getRevision("note-1")).thenReturn(Optional.of(7L));
+
+		mockMvc.perform(get("/notatky/note-children/all/note-1").requestAttr(JwtFilter.AUTHENTICATED_USER_ID, "user-1")
+						.header("If-None-Match", "W/\"7\""))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("ETag", "W/\"7\""))
+				.andExpect(content().string(""));
+		verify(noteChildService, never()).getNoteDocument(anyString(), anyLong());
+
+		// A write landed between reading the revision and hydrating, so the body carries the newer revision
+		when(noteChildService.getNoteDocument("note-1", 7L))
+				.thenReturn(new NoteDocumentCache.NoteDocument(8L, List.of(new NoteChildDto())));
+		mockMvc.perform(get("/notatky/note-children/all/note-1").requestAttr(JwtFilter.AUTHENTICATED_USER_ID, "user-1")
+						.header("If-None-Match", "W/\"6\""))
+				.andExpect(status().isOk())
+				.andExpect(header().stringValues("ETag", "W/\"8\""))
+				.andExpect(header().stringValues("Vary", hasItem("Accept")))
+				.andExpect(jsonPath("$.length()").value(1));
+	}
+}
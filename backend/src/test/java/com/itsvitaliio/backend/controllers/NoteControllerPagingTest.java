@@ -0,0 +1,138 @@
+package com.itsvitaliio.backend.controllers;
+
+import com.itsvitaliio.backend.filter.JwtFilter;
+import com.itsvitaliio.backend.models.Note;
+import com.itsvitaliio.backend.models.User;
+import com.itsvitaliio.backend.models.UserNote;
+import com.itsvitaliio.backend.services.NoteDocumentCache;
+import com.itsvitaliio.backend.services.NoteService;
+import com.itsvitaliio.backend.services.SearchIndexService;
+import com.itsvitaliio.backend.services.UserNoteService;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Keyset pages of the notes list, walked through the X-Next-Cursor header against the real queries
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"image.upload.dir=target/test-images",
+		"search.index.dir=target/test-search-index"
+})
+@Import({NoteService.class, UserNoteService.class, NoteDocumentCache.class, SearchIndexService.class})
+class NoteControllerPagingTest {
+
+	@Autowired
+	private NoteService noteService;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	private MockMvc mockMvc;
+	private User user;
+
+	@BeforeEach
+	void setUp() {
+		mockMvc = MockMvcBuilders.standaloneSetup(new NoteController(noteService)).build();
+		user = new User();
+		user.setId(UUID.randomUUID().toString());
+		user.setUsername("pager-" + user.getId());
+		user.setEmail(user.getId() + "@example.com");
+		user.setPassword("x");
+		entityManager.persist(user);
+	}
+
+	@Test
+	void cursorWalksNotesWithEqualTimestampsOnceEachInOrder() throws Exception {
+		// Five notes per timestamp, so most page boundaries fall between notes that only the ID tells apart
+		LocalDateTime start = LocalDateTime.of(2024, 3, 1, 12, 0);
+		List<Note> notes = new ArrayList<>();
+		for (int i = 0; i < 23; i++) {
+			notes.add(persistNote(start.plusMinutes(i / 5)));
+		}
+		entityManager.flush();
+		List<String> expected = notes.stream()
+				.sorted(Comparator.comparing(Note::getLastInteractedWith).thenComparing(Note::getId).reversed())
+				.map(Note::getId)
+				.toList();
+
+		List<String> walked = new ArrayList<>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			var page = get("/notatky/notes").param("limit", "4").requestAttr(JwtFilter.AUTHENTICATED_USER_ID, user.getId());
+			if (cursor != null) {
+				page.param("cursor", cursor);
+			}
+			MockHttpServletResponse response = mockMvc.perform(page).andExpect(status().isOk()).andReturn().getResponse();
+			walked.addAll(JsonPath.read(response.getContentAsString(), "$[*].id"));
+			cursor = response.getHeader(NoteController.NEXT_CURSOR_HEADER);
+			pages++;
+		} while (cursor != null);
+
+		assertThat(walked).containsExactlyElementsOf(expected);
+		assertThat(pages).isEqualTo(6);
+	}
+
+	@Test
+	void lastPageHasNoCursorEvenWhenItIsFull() throws Exception {
+		for (int i = 0; i < 4; i++) {
+			persistNote(LocalDateTime.of(2024, 3, 1, 12, i));
+		}
+		entityManager.flush();
+
+		mockMvc.perform(get("/notatky/notes").param("limit", "4").requestAttr(JwtFilter.AUTHENTICATED_USER_ID, user.getId()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(4))
+				.andExpect(header().doesNotExist(NoteController.NEXT_CURSOR_HEADER));
+	}
+
+	@Test
+	void limitIsClampedToTwoHundred() throws Exception {
+		LocalDateTime start = LocalDateTime.of(2024, 3, 1, 12, 0);
+		for (int i = 0; i < 205; i++) {
+			persistNote(start.plusSeconds(i));
+		}
+		entityManager.flush();
+
+		mockMvc.perform(get("/notatky/notes").param("limit", "10000").requestAttr(JwtFilter.AUTHENTICATED_USER_ID, user.getId()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(200))
+				.andExpect(header().exists(NoteController.NEXT_CURSOR_HEADER));
+		mockMvc.perform(get("/notatky/notes").param("limit", "0").requestAttr(JwtFilter.AUTHENTICATED_USER_ID, user.getId()))
+				.andExpect(jsonPath("$.length()").value(1));
+	}
+
+	@Test
+	void malformedCursorIsABadRequest() throws Exception {
+		for (String cursor : List.of("not base64!", "bm8tc2VwYXJhdG9y", "bm90LWEtZGF0ZXxub3RlLTE")) {
+			mockMvc.perform(get("/notatky/notes").param("cursor", cursor).requestAttr(JwtFilter.AUTHENTICATED_USER_ID, user.getId()))
+					.andExpect(status().isBadRequest());
+		}
+	}
+
+	private Note persistNote(LocalDateTime lastInteractedWith) {
+		Note note = new Note(UUID.randomUUID().toString(), "Note", lastInteractedWith, 0);
+		entityManager.persist(note);
+		entityManager.persist(new UserNote(null, user, note));
+		return note;
+	}
+}
@@ -0,0 +1,98 @@
+package com.itsvitaliio.backend.filter;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.itsvitaliio.backend.config.CompressionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class CompressionFilterTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final CompressionFilter filter = new CompressionFilter(new CompressionProperties(), meterRegistry);
+
+	@Test
+	void negotiatePrefersZstdAndHonoursZeroWeights() {
+		assertThat(CompressionFilter.negotiate("gzip, deflate, br, zstd")).isEqualTo("zstd");
+		assertThat(CompressionFilter.negotiate("gzip, deflate, br")).isEqualTo("gzip");
+		assertThat(CompressionFilter.negotiate("zstd;q=0, gzip;q=0.5")).isEqualTo("gzip");
+		assertThat(CompressionFilter.negotiate("*")).isEqualTo("zstd");
+		assertThat(CompressionFilter.negotiate("identity")).isNull();
+		assertThat(CompressionFilter.negotiate(null)).isNull();
+	}
+
+	@Test
+	void largeJsonIsCompressedWithTheNegotiatedCoding() throws Exception {
+		String body = "[" + "{\"id\":\"block\",\"type\":\"text\"},".repeat(200) + "{}]";
+
+		MockHttpServletResponse zstd = filter("zstd", "application/json", body);
+		assertThat(zstd.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("zstd");
+		assertThat(zstd.getHeader(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING);
+		assertThat(zstd.getContentAsByteArray().length).isLessThan(body.length());
+		assertThat(decode(new ZstdInputStream(new ByteArrayInputStream(zstd.getContentAsByteArray())))).isEqualTo(body);
+
+		MockHttpServletResponse gzip = filter("gzip", "application/json", body);
+		assertThat(gzip.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+		assertThat(decode(new GZIPInputStream(new ByteArrayInputStream(gzip.getContentAsByteArray())))).isEqualTo(body);
+
+		assertThat(meterRegistry.get("http.server.compression.original").tag("encoding", "zstd").counter().count())
+				.isEqualTo(body.length());
+		assertThat(meterRegistry.get("http.server.compression.sent").tag("encoding", "gzip").counter().count())
+				.isEqualTo(gzip.getContentAsByteArray().length);
+	}
+
+	@Test
+	void nonBlockingWritesAreRefusedAsTheServletApiExpects() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/notatky/notes");
+		request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+		filter.doFilter(request, new MockHttpServletResponse(), (req, res) ->
+				assertThatThrownBy(() -> res.getOutputStream().setWriteListener(mock(WriteListener.class)))
+						.isInstanceOf(IllegalStateException.class));
+	}
+
+	@Test
+	void smallOrUnlistedBodiesAreSentAsTheyAre() throws Exception {
+		MockHttpServletResponse small = filter("gzip", "application/json", "{\"id\":\"block\"}");
+		assertThat(small.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+		assertThat(small.getContentAsString()).isEqualTo("{\"id\":\"block\"}");
+		assertThat(small.getContentLength()).isEqualTo(14);
+
+		String image = "x".repeat(10_000);
+		MockHttpServletResponse jpeg = filter("gzip", "image/jpeg", image);
+		assertThat(jpeg.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+		assertThat(jpeg.getContentAsString()).isEqualTo(image);
+	}
+
+	private MockHttpServletResponse filter(String acceptEncoding, String contentType, String body) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/notatky/note-children/all/note-1");
+		request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain chain = (req, res) -> {
+			res.setContentType(contentType);
+			res.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+			res.getOutputStream().flush();
+		};
+		filter.doFilter(request, response, chain);
+		return response;
+	}
+
+	private static String decode(InputStream in) throws IOException {
+		try (in) {
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+}
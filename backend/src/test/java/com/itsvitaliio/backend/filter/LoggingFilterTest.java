@@ -0,0 +1,67 @@
+package com.itsvitaliio.backend.filter;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.itsvitaliio.backend.config.RequestLoggingProperties;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoggingFilterTest {
+
+	private final RequestLoggingProperties properties = new RequestLoggingProperties();
+	private final RequestLogWriter writer = new RequestLogWriter(properties);
+	private final LoggingFilter filter = new LoggingFilter(properties, writer);
+	private final Logger logger = (Logger) LoggerFactory.getLogger("notatky.requests");
+	private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+	@BeforeEach
+	void setUp() {
+		appender.start();
+		logger.addAppender(appender);
+		writer.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		logger.detachAppender(appender);
+	}
+
+	@Test
+	void credentialBodiesAreNeverLogged() throws Exception {
+		filter("POST", "/login", "{\"email\":\"a@example.com\",\"password\":\"hunter2-secret\"}");
+		filter("POST", "/register", "{\"username\":\"a\",\"password\":\"hunter2-secret\"}");
+		filter("PUT", "/notatky/change-password", "{\"newPassword\":\"hunter2-secret\"}");
+		filter("PUT", "/notatky/change-username", "{\"newUsername\":\"renamed\"}");
+
+		List<String> lines = drain();
+		assertThat(lines).hasSize(4);
+		assertThat(lines).noneMatch(line -> line.contains("hunter2-secret"));
+		assertThat(lines.get(0)).contains("uri=/login").contains("status=200").endsWith("body=null");
+		assertThat(lines.get(3)).contains("renamed");
+	}
+
+	private void filter(String method, String uri, String body) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+		request.setContentType("application/json");
+		request.setContent(body.getBytes(StandardCharsets.UTF_8));
+		// The handler reads the body, as Jackson would
+		FilterChain chain = (req, res) -> req.getInputStream().readAllBytes();
+		filter.doFilter(request, new MockHttpServletResponse(), chain);
+	}
+
+	private List<String> drain() throws InterruptedException {
+		writer.stop();
+		return appender.list.stream().map(ILoggingEvent::getFormattedMessage).toList();
+	}
+}
@@ -0,0 +1,89 @@
+package com.itsvitaliio.backend.repositories;
+
+import com.itsvitaliio.backend.dto.NoteSummary;
+import com.itsvitaliio.backend.models.ImageNode;
+import com.itsvitaliio.backend.models.Note;
+import com.itsvitaliio.backend.models.NoteChild;
+import com.itsvitaliio.backend.models.TextNode;
+import com.itsvitaliio.backend.models.User;
+import com.itsvitaliio.backend.models.UserNote;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs the native summary query against the Flyway schema on H2
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class NoteSummaryQueryTest {
+
+	private static final int PREVIEW_LENGTH = 120;
+
+	@Autowired
+	private NoteRepository noteRepository;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Test
+	void summariesCountBlocksAndPreviewTheFirstTextBlock() {
+		User user = persistUser();
+		Note empty = persistNote(user, "Empty", LocalDateTime.of(2024, 3, 2, 9, 0));
+		Note mixed = persistNote(user, "Mixed", LocalDateTime.of(2024, 3, 1, 9, 0));
+		// Inserted out of order: the preview follows sort_key, and skips the image that sorts first
+		persistText(mixed, "x".repeat(300), "m");
+		persistImage(mixed, "a");
+		persistText(mixed, "second", "t");
+		persistImage(mixed, "z");
+		persistNote(persistUser(), "Someone else's", LocalDateTime.of(2024, 3, 3, 9, 0));
+		entityManager.flush();
+		entityManager.clear();
+
+		List<NoteSummary> summaries = noteRepository.findSummariesByUserId(user.getId(), PREVIEW_LENGTH);
+
+		assertThat(summaries).extracting(NoteSummary::getId).containsExactly(empty.getId(), mixed.getId());
+
+		NoteSummary emptySummary = summaries.get(0);
+		assertThat(emptySummary.getTitle()).isEqualTo("Empty");
+		assertThat(emptySummary.getChildCount()).isZero();
+		assertThat(emptySummary.getImageCount()).isZero();
+		assertThat(emptySummary.getPreview()).isNull();
+
+		NoteSummary mixedSummary = summaries.get(1);
+		assertThat(mixedSummary.getLastInteractedWith()).isEqualTo(LocalDateTime.of(2024, 3, 1, 9, 0));
+		assertThat(mixedSummary.getChildCount()).isEqualTo(4L);
+		assertThat(mixedSummary.getImageCount()).isEqualTo(2L);
+		assertThat(mixedSummary.getPreview()).isEqualTo("x".repeat(PREVIEW_LENGTH));
+	}
+
+	private User persistUser() {
+		User user = new User();
+		user.setId(UUID.randomUUID().toString());
+		user.setUsername("summary-" + user.getId());
+		user.setEmail(user.getId() + "@example.com");
+		user.setPassword("x");
+		return entityManager.persist(user);
+	}
+
+	private Note persistNote(User user, String title, LocalDateTime lastInteractedWith) {
+		Note note = new Note(UUID.randomUUID().toString(), title, lastInteractedWith, 0);
+		entityManager.persist(note);
+		entityManager.persist(new UserNote(null, user, note));
+		return note;
+	}
+
+	private void persistText(Note note, String content, String sortKey) {
+		TextNode textNode = entityManager.persist(new TextNode(UUID.randomUUID().toString(), content));
+		entityManager.persist(new NoteChild(UUID.randomUUID().toString(), note.getId(), textNode.getId(), "text", 0, sortKey));
+	}
+
+	private void persistImage(Note note, String sortKey) {
+		ImageNode imageNode = entityManager.persist(new ImageNode(UUID.randomUUID().toString(), "images/" + sortKey + ".jpg"));
+		entityManager.persist(new NoteChild(UUID.randomUUID().toString(), note.getId(), imageNode.getId(), "image", 0, sortKey));
+	}
+}
@@ -0,0 +1,105 @@
+package com.itsvitaliio.backend.repositories;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs the Flyway schema on H2 and checks the plans of the SQL Hibernate generates for the hot lookups
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=com.itsvitaliio.backend.repositories.SchemaIndexUsageTest$RecordingInspector"
+})
+class SchemaIndexUsageTest {
+
+	@Autowired
+	private NoteChildRepository noteChildRepository;
+
+	@Autowired
+	private UserNoteRepository userNoteRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ImageNodeRepository imageNodeRepository;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@BeforeEach
+	void clearRecordedStatements() {
+		RecordingInspector.STATEMENTS.clear();
+	}
+
+	@Test
+	void findByNoteIdUsesNoteChildrenIndex() {
+		noteChildRepository.findByNoteId("note-1");
+
+		// MySQL serves the baseline foreign key from (note_id, sort_key) once it exists; H2 keeps a
+		// separate index for the constraint and may plan with either
+		assertThat(planFor("note_children", "note-1"))
+				.doesNotContain("tableScan")
+				.containsAnyOf("IDX_NOTE_CHILDREN_NOTE_SORT_KEY", "FK_NOTE_CHILDREN_NOTE");
+	}
+
+	@Test
+	void findByUserIdAndNoteIdUsesCompositeIndex() {
+		userNoteRepository.findByUserIdAndNoteId("user-1", "note-1");
+
+		assertThat(planFor("user_notes", "user-1", "note-1"))
+				.doesNotContain("tableScan")
+				.contains("IDX_USER_NOTES_USER_NOTE");
+	}
+
+	@Test
+	void findByUsernameUsesUsernameIndex() {
+		userRepository.findByUsername("alice");
+
+		assertThat(planFor("users", "alice"))
+				.doesNotContain("tableScan")
+				.contains("IDX_USERS_USERNAME");
+	}
+
+	@Test
+	void findReferencedImagePathsUsesImagePathIndex() {
+		imageNodeRepository.findReferencedImagePaths(List.of("images/legacy.jpg"));
+
+		assertThat(planFor("image_nodes", "images/legacy.jpg"))
+				.doesNotContain("tableScan")
+				.contains("IDX_IMAGE_NODES_IMAGE_PATH");
+	}
+
+	// EXPLAIN of the first recorded statement reading the table, with the parameters inlined
+	private String planFor(String table, String... parameters) {
+		String sql = RecordingInspector.STATEMENTS.stream()
+				.filter(statement -> statement.toLowerCase(Locale.ROOT).contains("from " + table + " "))
+				.findFirst()
+				.orElseThrow(() -> new AssertionError("No statement read " + table + ": " + RecordingInspector.STATEMENTS));
+		for (String parameter : parameters) {
+			sql = sql.replaceFirst("\\?", "'" + parameter + "'");
+		}
+		List<String> plan = new JdbcTemplate(dataSource).queryForList("EXPLAIN " + sql, String.class);
+		return String.join("\n", plan);
+	}
+
+	public static class RecordingInspector implements StatementInspector {
+
+		static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+		@Override
+		public String inspect(String sql) {
+			STATEMENTS.add(sql);
+			return sql;
+		}
+	}
+}
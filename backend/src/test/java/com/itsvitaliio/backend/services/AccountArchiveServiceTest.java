@@ -0,0 +1,210 @@
+package com.itsvitaliio.backend.services;
+
+import com.itsvitaliio.backend.dto.ArchiveImportResult;
+import com.itsvitaliio.backend.exceptions.ArchiveTooLargeException;
+import com.itsvitaliio.backend.models.ImageNode;
+import com.itsvitaliio.backend.models.Note;
+import com.itsvitaliio.backend.models.NoteChild;
+import com.itsvitaliio.backend.models.TextNode;
+import com.itsvitaliio.backend.models.User;
+import com.itsvitaliio.backend.models.UserNote;
+import com.itsvitaliio.backend.repositories.ImageNodeRepository;
+import com.itsvitaliio.backend.repositories.NoteChildRepository;
+import com.itsvitaliio.backend.repositories.TextNodeRepository;
+import com.itsvitaliio.backend.repositories.UserNoteRepository;
+import com.itsvitaliio.backend.utilities.SortKeys;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"image.upload.dir=target/test-images",
+		"search.index.dir=target/test-search-index",
+		"account-archive.max-concurrent-exports=2",
+		"account-archive.max-entry-bytes=4096",
+		"account-archive.max-total-bytes=8192"
+})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({AccountArchiveService.class, ImageStore.class, SearchIndexService.class, SortKeyRebalancer.class})
+class AccountArchiveServiceTest {
+
+	@Autowired
+	private AccountArchiveService accountArchiveService;
+
+	@Autowired
+	private ImageStore imageStore;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private UserNoteRepository userNoteRepository;
+
+	@Autowired
+	private NoteChildRepository noteChildRepository;
+
+	@Autowired
+	private TextNodeRepository textNodeRepository;
+
+	@Autowired
+	private ImageNodeRepository imageNodeRepository;
+
+	@Test
+	void exportedAccountImportsIntoAnotherAccountInOrder() throws Exception {
+		User source = persistUser("source");
+		Note note = persistNote(source, "Groceries");
+		ImageStore.StoredImage image = imageStore.store(new ByteArrayInputStream(
+				("\u0089PNG\r\n\u001a\nnot really a png").getBytes(StandardCharsets.ISO_8859_1)));
+		List<String> sortKeys = SortKeys.evenlySpaced(3);
+		persistText(note, "milk", sortKeys.get(0));
+		persistImage(note, image, sortKeys.get(1));
+		persistText(note, "eggs", sortKeys.get(2));
+		entityManager.flush();
+		entityManager.clear();
+
+		ByteArrayOutputStream archive = new ByteArrayOutputStream();
+		accountArchiveService.exportAccount(source.getId(), archive);
+
+		User target = persistUser("target");
+		entityManager.flush();
+		ArchiveImportResult result = accountArchiveService.importAccount(target.getId(),
+				new ByteArrayInputStream(archive.toByteArray()));
+
+		assertThat(result).isEqualTo(new ArchiveImportResult(1, 3, 1, 0));
+		List<String> importedNoteIds = userNoteRepository.findNoteIdsByUserId(target.getId());
+		assertThat(importedNoteIds).hasSize(1).doesNotContain(note.getId());
+
+		List<NoteChild> children = noteChildRepository.findByNoteIdOrderBySortKeyAsc(importedNoteIds.get(0));
+		assertThat(children).extracting(NoteChild::getType).containsExactly("text", "image", "text");
+		assertThat(textNodeRepository.findById(children.get(0).getChildId())).get()
+				.extracting(TextNode::getContent).isEqualTo("milk");
+		assertThat(textNodeRepository.findById(children.get(2).getChildId())).get()
+				.extracting(TextNode::getContent).isEqualTo("eggs");
+		ImageNode importedImage = imageNodeRepository.findById(children.get(1).getChildId()).orElseThrow();
+		assertThat(importedImage.getContentHash()).isEqualTo(image.contentHash());
+		assertThat(importedImage.getContentType()).isEqualTo("image/png");
+	}
+
+	@Test
+	void exportLeavesOutFilesOutsideTheStore() throws Exception {
+		User source = persistUser("source");
+		Note note = persistNote(source, "Secrets");
+		Path outside = Files.createTempFile("outside-store-", ".txt");
+		try {
+			Files.writeString(outside, "SECRET=outside-the-store");
+			persistImage(note, new ImageStore.StoredImage(null, outside.toString(), null, 0), SortKeys.evenlySpaced(1).get(0));
+			entityManager.flush();
+			entityManager.clear();
+
+			ByteArrayOutputStream archive = new ByteArrayOutputStream();
+			accountArchiveService.exportAccount(source.getId(), archive);
+
+			List<String> entries = new ArrayList<>();
+			try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive.toByteArray()))) {
+				for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+					entries.add(entry.getName());
+					assertThat(new String(zip.readAllBytes(), StandardCharsets.UTF_8)).doesNotContain("SECRET");
+				}
+			}
+			assertThat(entries).containsExactly(AccountArchiveService.NOTES_ENTRY);
+		} finally {
+			Files.deleteIfExists(outside);
+		}
+	}
+
+	@Test
+	void concurrentExportsAreCapped() {
+		assertThat(accountArchiveService.tryStartExport()).isTrue();
+		assertThat(accountArchiveService.tryStartExport()).isTrue();
+		assertThat(accountArchiveService.tryStartExport()).isFalse();
+
+		accountArchiveService.finishExport();
+		assertThat(accountArchiveService.tryStartExport()).isTrue();
+		accountArchiveService.finishExport();
+		accountArchiveService.finishExport();
+	}
+
+	@Test
+	void importStopsOnceAnEntryOrTheArchiveInflatesPastItsCap() throws Exception {
+		User target = persistUser("target");
+		entityManager.flush();
+
+		// Zeros deflate to almost nothing, so the upload itself stays small
+		byte[] oversizedEntry = zip(Map.of(AccountArchiveService.IMAGES_PREFIX + "a", new byte[5000]));
+		assertThatThrownBy(() -> accountArchiveService.importAccount(target.getId(), new ByteArrayInputStream(oversizedEntry)))
+				.isInstanceOf(ArchiveTooLargeException.class)
+				.hasMessageContaining("images/a");
+
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		for (String name : List.of("a", "b", "c")) {
+			entries.put(AccountArchiveService.IMAGES_PREFIX + name, new byte[3000]);
+		}
+		byte[] oversizedArchive = zip(entries);
+		assertThatThrownBy(() -> accountArchiveService.importAccount(target.getId(), new ByteArrayInputStream(oversizedArchive)))
+				.isInstanceOf(ArchiveTooLargeException.class)
+				.hasMessageContaining("8192");
+	}
+
+	private static byte[] zip(Map<String, byte[]> entries) throws IOException {
+		ByteArrayOutputStream archive = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+			for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+				zip.putNextEntry(new ZipEntry(entry.getKey()));
+				zip.write(entry.getValue());
+				zip.closeEntry();
+			}
+		}
+		return archive.toByteArray();
+	}
+
+	private User persistUser(String username) {
+		User user = new User();
+		user.setId(UUID.randomUUID().toString());
+		user.setUsername(username + "-" + user.getId());
+		user.setEmail(user.getUsername() + "@example.com");
+		user.setPassword("x");
+		return entityManager.persist(user);
+	}
+
+	private Note persistNote(User user, String title) {
+		Note note = new Note(UUID.randomUUID().toString(), title, LocalDateTime.now(), 0);
+		entityManager.persist(note);
+		entityManager.persist(new UserNote(null, user, note));
+		return note;
+	}
+
+	private void persistText(Note note, String content, String sortKey) {
+		TextNode textNode = entityManager.persist(new TextNode(UUID.randomUUID().toString(), content));
+		entityManager.persist(new NoteChild(UUID.randomUUID().toString(), note.getId(), textNode.getId(), "text", 0, sortKey));
+	}
+
+	private void persistImage(Note note, ImageStore.StoredImage image, String sortKey) {
+		ImageNode imageNode = entityManager.persist(new ImageNode(UUID.randomUUID().toString(), image.path(),
+				image.contentHash(), image.contentType(), image.sizeBytes()));
+		entityManager.persist(new NoteChild(UUID.randomUUID().toString(), note.getId(), imageNode.getId(), "image", 0, sortKey));
+	}
+}
@@ -0,0 +1,153 @@
+package com.itsvitaliio.backend.services;
+
+import com.itsvitaliio.backend.config.AppConfig;
+import com.itsvitaliio.backend.models.Note;
+import com.itsvitaliio.backend.models.NoteChild;
+import com.itsvitaliio.backend.models.TextNode;
+import com.itsvitaliio.backend.models.User;
+import com.itsvitaliio.backend.models.UserNote;
+import com.itsvitaliio.backend.utilities.JwtUtil;
+import com.itsvitaliio.backend.utilities.SortKeys;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The small account runs with every build; the 10k one with: mvn test -Dtest=AccountDeletionBenchmarkTest -Dbenchmark=true
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"spring.jpa.show-sql=false",
+		"logging.level.org.hibernate.SQL=INFO",
+		"logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO",
+		"jwt.secret=benchmark-secret-benchmark-secret-benchmark-secret",
+		"search.index.dir=target/test-search-index",
+		"account-deletion.chunk-size=1000"
+})
+@Import({UserService.class, AccountDeletionJob.class, NoteDocumentCache.class, UserPrincipalCache.class, SearchIndexService.class,
+		ImageVariantService.class, ImageStore.class, JwtUtil.class, AppConfig.class})
+class AccountDeletionBenchmarkTest {
+
+	private static final int NOTES = 10_000;
+	private static final int SMALL_NOTES = 50;
+	private static final int CHILDREN_PER_NOTE = 3;
+	private static final List<String> SORT_KEYS = SortKeys.evenlySpaced(CHILDREN_PER_NOTE);
+	private static final int CHUNK_SIZE = 1000;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private AccountDeletionJob accountDeletionJob;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void deleteSmallAccountWithAFixedNumberOfStatements() {
+		// One chunk's deletes plus the job's own bookkeeping; a change here is a change in the purge's round trips
+		assertThat(purgeStatements(SMALL_NOTES)).isEqualTo(13L);
+		// A chunk costs the same however many notes it holds
+		assertThat(purgeStatements(SMALL_NOTES * 2)).isEqualTo(13L);
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void deleteAccountWithTenThousandNotes() {
+		String userId = seedAccount(NOTES);
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		long start = System.nanoTime();
+		String deletionId = userService.deleteUserAccount(userId);
+		entityManager.flush();
+		long requestMillis = (System.nanoTime() - start) / 1_000_000;
+		long requestStatements = statistics.getPrepareStatementCount();
+
+		// The request only marks the account; the user stays until the job has purged it
+		assertThat(requestStatements).isLessThan(10);
+		assertThat(entityManager.find(User.class, userId).getDeletedAt()).isNotNull();
+		entityManager.clear();
+
+		statistics.clear();
+		start = System.nanoTime();
+		accountDeletionJob.purge(deletionId);
+		entityManager.flush();
+		long purgeMillis = (System.nanoTime() - start) / 1_000_000;
+
+		System.out.printf("deleteUserAccount: notes=%d children=%d request=%d statements/%dms purge=%d statements/%dms%n",
+				NOTES, NOTES * CHILDREN_PER_NOTE, requestStatements, requestMillis,
+				statistics.getPrepareStatementCount(), purgeMillis);
+
+		// Per 1000-note chunk: the job row, the note IDs, the image files and five deletes; then the user row
+		int chunks = NOTES / CHUNK_SIZE;
+		assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(chunks * 8L + 10);
+		assertThat(entityManager.find(User.class, userId)).isNull();
+		assertThat(accountDeletionJob.getStatus(deletionId)).get()
+				.satisfies(status -> {
+					assertThat(status.isCompleted()).isTrue();
+					assertThat(status.getNotesPurged()).isEqualTo(NOTES);
+				});
+	}
+
+	private long purgeStatements(int notes) {
+		String userId = seedAccount(notes);
+		String deletionId = userService.deleteUserAccount(userId);
+		entityManager.flush();
+		entityManager.clear();
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		accountDeletionJob.purge(deletionId);
+		entityManager.flush();
+
+		assertThat(entityManager.find(User.class, userId)).isNull();
+		assertThat(accountDeletionJob.getStatus(deletionId)).get()
+				.satisfies(status -> assertThat(status.getNotesPurged()).isEqualTo(notes));
+		return statistics.getPrepareStatementCount();
+	}
+
+	private String seedAccount(int notes) {
+		User user = new User();
+		user.setId(UUID.randomUUID().toString().substring(0, 10));
+		user.setUsername("benchmark-" + user.getId());
+		user.setEmail(user.getId() + "@example.com");
+		user.setPassword("x");
+		entityManager.persist(user);
+
+		for (int i = 0; i < notes; i++) {
+			Note note = new Note();
+			note.setTitle("Note " + i);
+			note.setLastInteractedWith(LocalDateTime.now());
+			entityManager.persist(note);
+			entityManager.persist(new UserNote(null, user, note));
+			for (int position = 0; position < CHILDREN_PER_NOTE; position++) {
+				String childId = UUID.randomUUID().toString();
+				entityManager.persist(new TextNode(childId, "block " + position));
+				entityManager.persist(new NoteChild(UUID.randomUUID().toString(), note.getId(), childId, "text", position, SORT_KEYS.get(position)));
+			}
+			if (i % 500 == 0) {
+				entityManager.flush();
+				entityManager.clear();
+				user = entityManager.find(User.class, user.getId());
+			}
+		}
+		entityManager.flush();
+		entityManager.clear();
+		return user.getId();
+	}
+}
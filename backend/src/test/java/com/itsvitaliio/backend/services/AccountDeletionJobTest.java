@@ -0,0 +1,132 @@
+package com.itsvitaliio.backend.services;
+
+import com.itsvitaliio.backend.config.AppConfig;
+import com.itsvitaliio.backend.models.ImageNode;
+import com.itsvitaliio.backend.models.Note;
+import com.itsvitaliio.backend.models.NoteChild;
+import com.itsvitaliio.backend.models.User;
+import com.itsvitaliio.backend.models.UserNote;
+import com.itsvitaliio.backend.utilities.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"jwt.secret=test-secret-test-secret-test-secret-test-secret",
+		"image.upload.dir=target/test-images",
+		"search.index.dir=target/test-search-index"
+})
+@Import({UserService.class, AccountDeletionJob.class, NoteDocumentCache.class, UserPrincipalCache.class, SearchIndexService.class,
+		ImageVariantService.class, ImageStore.class, JwtUtil.class, AppConfig.class})
+class AccountDeletionJobTest {
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private AccountDeletionJob accountDeletionJob;
+
+	@Autowired
+	private ImageStore imageStore;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Test
+	void purgeDeletesStoredImagesButNotFilesOutsideTheStore() throws IOException {
+		ImageStore.StoredImage stored = storeUntouchedSince(Instant.now().minus(Duration.ofHours(2)));
+		Path outside = Files.createTempFile("outside-store-", ".txt");
+		try {
+			User user = persistUser();
+			Note note = persistNote(user);
+			persistImage(note, stored.path(), stored.contentHash(), "a");
+			persistImage(note, outside.toString(), null, "b");
+			// Relative paths that climb out of the store are not inside it either
+			persistImage(note, imageStore.getRootDir().resolve("..").resolve("..").resolve(outside.getFileName()).toString(), null, "c");
+			entityManager.flush();
+			entityManager.clear();
+
+			String deletionId = userService.deleteUserAccount(user.getId());
+			entityManager.flush();
+			accountDeletionJob.purge(deletionId);
+			entityManager.flush();
+
+			assertThat(Paths.get(stored.path())).doesNotExist();
+			assertThat(outside).exists();
+			assertThat(accountDeletionJob.getStatus(deletionId)).get()
+					.satisfies(status -> assertThat(status.isCompleted()).isTrue());
+		} finally {
+			Files.deleteIfExists(outside);
+		}
+	}
+
+	@Test
+	void purgeLeavesRecentlyTouchedFilesToTheCollector() throws IOException {
+		ImageStore.StoredImage stored = storeUntouchedSince(Instant.now().minus(Duration.ofHours(2)));
+		User user = persistUser();
+		Note note = persistNote(user);
+		persistImage(note, stored.path(), stored.contentHash(), "a");
+		entityManager.flush();
+		entityManager.clear();
+
+		String deletionId = userService.deleteUserAccount(user.getId());
+		entityManager.flush();
+		// Another account uploads the same bytes while the purge runs; its row is not committed yet
+		assertThat(imageStore.store(new ByteArrayInputStream(Files.readAllBytes(Paths.get(stored.path())))).path())
+				.isEqualTo(stored.path());
+		accountDeletionJob.purge(deletionId);
+		entityManager.flush();
+
+		assertThat(Paths.get(stored.path())).exists();
+		assertThat(accountDeletionJob.getStatus(deletionId)).get()
+				.satisfies(status -> assertThat(status.getFilesPurged()).isZero());
+	}
+
+	private ImageStore.StoredImage storeUntouchedSince(Instant modified) throws IOException {
+		ImageStore.StoredImage stored = imageStore.store(new ByteArrayInputStream(
+				UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8)));
+		Files.setLastModifiedTime(Paths.get(stored.path()), FileTime.from(modified));
+		return stored;
+	}
+
+	private User persistUser() {
+		User user = new User();
+		user.setId(UUID.randomUUID().toString().substring(0, 10));
+		user.setUsername("deleted");
+		user.setEmail(user.getId() + "@example.com");
+		user.setPassword("x");
+		return entityManager.persist(user);
+	}
+
+	private Note persistNote(User user) {
+		Note note = new Note();
+		note.setTitle("Note");
+		note.setLastInteractedWith(LocalDateTime.now());
+		entityManager.persist(note);
+		entityManager.persist(new UserNote(null, user, note));
+		return note;
+	}
+
+	private void persistImage(Note note, String imagePath, String contentHash, String sortKey) {
+		ImageNode imageNode = entityManager.persist(new ImageNode(UUID.randomUUID().toString(), imagePath,
+				contentHash, contentHash != null ? "image/png" : null, null));
+		entityManager.persist(new NoteChild(UUID.randomUUID().toString(), note.getId(), imageNode.getId(), "image", 0, sortKey));
+	}
+}
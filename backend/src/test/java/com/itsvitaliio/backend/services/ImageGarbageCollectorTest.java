@@ -0,0 +1,121 @@
+package com.itsvitaliio.backend.services;
+
+import com.itsvitaliio.backend.models.ImageNode;
+import com.itsvitaliio.backend.models.Note;
+import com.itsvitaliio.backend.models.NoteChild;
+import com.itsvitaliio.backend.models.TextNode;
+import com.itsvitaliio.backend.repositories.ImageNodeRepository;
+import com.itsvitaliio.backend.repositories.NoteChildRepository;
+import com.itsvitaliio.backend.repositories.NoteRepository;
+import com.itsvitaliio.backend.repositories.TextNodeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The collector sweeps on its own threads and transactions, so the rows it looks at are committed
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ImageGarbageCollectorTest {
+
+	private static final Duration GRACE_PERIOD = Duration.ofMillis(500);
+
+	@Autowired
+	private TextNodeRepository textNodeRepository;
+
+	@Autowired
+	private ImageNodeRepository imageNodeRepository;
+
+	@Autowired
+	private NoteRepository noteRepository;
+
+	@Autowired
+	private NoteChildRepository noteChildRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private ImageStore imageStore;
+	private ImageGarbageCollector collector;
+
+	@BeforeEach
+	void setUp() {
+		imageStore = new ImageStore("target/test-gc-images-" + UUID.randomUUID());
+		collector = new ImageGarbageCollector(imageStore, new ImageVariantService(imageStore, new int[]{160}, 1, 10),
+				textNodeRepository, imageNodeRepository, transactionManager, GRACE_PERIOD, 2, 10_000, 1000);
+	}
+
+	@Test
+	void orphanedRowsAreMarkedFirstAndDeletedAfterTheGracePeriod() throws Exception {
+		String orphan = textNodeRepository.save(new TextNode(UUID.randomUUID().toString(), "orphan")).getId();
+		String rescued = textNodeRepository.save(new TextNode(UUID.randomUUID().toString(), "rescued")).getId();
+		String referenced = textNodeRepository.save(new TextNode(UUID.randomUUID().toString(), "referenced")).getId();
+		String noteId = seedNote();
+		referTo(noteId, referenced);
+
+		collector.collect();
+		assertThat(textNodeRepository.existsById(orphan)).isTrue();
+		assertThat(textNodeRepository.existsById(rescued)).isTrue();
+
+		// Pointed to again while marked, as a sync that is still committing would
+		referTo(noteId, rescued);
+		Thread.sleep(GRACE_PERIOD.toMillis() + 100);
+		collector.collect();
+
+		assertThat(textNodeRepository.existsById(orphan)).isFalse();
+		assertThat(textNodeRepository.existsById(rescued)).isTrue();
+		assertThat(textNodeRepository.existsById(referenced)).isTrue();
+	}
+
+	@Test
+	void unreferencedFilesAreKeptWhileAnUploadRefreshesThem() throws Exception {
+		ImageStore.StoredImage unreferenced = store("unreferenced");
+		ImageStore.StoredImage reuploaded = store("re-uploaded");
+		ImageStore.StoredImage referenced = store("referenced");
+		imageNodeRepository.save(new ImageNode(UUID.randomUUID().toString(), referenced.path(),
+				referenced.contentHash(), referenced.contentType(), referenced.sizeBytes()));
+		for (ImageStore.StoredImage image : new ImageStore.StoredImage[]{unreferenced, reuploaded, referenced}) {
+			Files.setLastModifiedTime(Paths.get(image.path()), FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+		}
+
+		// The same bytes again: deduplicated onto the existing file, which restarts its grace period
+		assertThat(store("re-uploaded").path()).isEqualTo(reuploaded.path());
+		collector.collect();
+
+		assertThat(Paths.get(unreferenced.path())).doesNotExist();
+		assertThat(Paths.get(reuploaded.path())).exists();
+		assertThat(Paths.get(referenced.path())).exists();
+	}
+
+	private ImageStore.StoredImage store(String content) throws Exception {
+		return imageStore.store(new ByteArrayInputStream((content + " " + imageStore.getRootDir())
+				.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private String seedNote() {
+		Note note = new Note();
+		note.setTitle("Note");
+		note.setLastInteractedWith(LocalDateTime.now());
+		return noteRepository.save(note).getId();
+	}
+
+	private void referTo(String noteId, String textNodeId) {
+		noteChildRepository.save(new NoteChild(UUID.randomUUID().toString(), noteId, textNodeId, "text", 0, null));
+	}
+}
@@ -0,0 +1,66 @@
+package com.itsvitaliio.backend.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageStoreTest {
+
+	@Test
+	void contentTypeComesFromTheFileSignature() {
+		assertThat(typeOf(0xFF, 0xD8, 0xFF, 0xE0)).isEqualTo("image/jpeg");
+		assertThat(typeOf(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)).isEqualTo("image/png");
+		assertThat(typeOf('G', 'I', 'F', '8', '9', 'a')).isEqualTo("image/gif");
+		assertThat(typeOf('R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P')).isEqualTo("image/webp");
+		assertThat(typeOf('B', 'M', 0, 0)).isEqualTo("image/bmp");
+
+		assertThat(typeOf('R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'A', 'V', 'E')).isEqualTo("application/octet-stream");
+		assertThat(typeOf(0x89, 'P', 'N', 'G')).isEqualTo("application/octet-stream");
+		assertThat(typeOf()).isEqualTo("application/octet-stream");
+		byte[] svg = "<svg xmlns=\"http://www.w3.org/2000/svg\"/>".getBytes(StandardCharsets.UTF_8);
+		assertThat(ImageStore.contentTypeOf(svg, svg.length)).isEqualTo("application/octet-stream");
+	}
+
+	@Test
+	void onlyRasterTypesAreInline() {
+		assertThat(ImageStore.isInline("image/png")).isTrue();
+		assertThat(ImageStore.isInline("image/svg+xml")).isFalse();
+		assertThat(ImageStore.isInline("text/html")).isFalse();
+		assertThat(ImageStore.isInline(null)).isFalse();
+	}
+
+	@Test
+	void identicalUploadsShareOneFileAndRefreshItsModificationTime() throws Exception {
+		ImageStore imageStore = new ImageStore("target/test-images");
+		byte[] bytes = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+		ImageStore.StoredImage first = imageStore.store(new ByteArrayInputStream(bytes));
+		Path file = Paths.get(first.path());
+		assertThat(file).startsWith(imageStore.getRootDir().resolve(first.contentHash().substring(0, 2)));
+		Instant old = Instant.now().minus(Duration.ofHours(2));
+		Files.setLastModifiedTime(file, FileTime.from(old));
+
+		ImageStore.StoredImage second = imageStore.store(new ByteArrayInputStream(bytes));
+
+		assertThat(second).isEqualTo(first);
+		assertThat(Files.getLastModifiedTime(file).toInstant()).isAfter(old.plus(Duration.ofHours(1)));
+		assertThat(imageStore.getRootDir().resolve("tmp")).isEmptyDirectory();
+	}
+
+	private static String typeOf(int... bytes) {
+		byte[] header = new byte[12];
+		for (int i = 0; i < bytes.length; i++) {
+			header[i] = (byte) bytes[i];
+		}
+		return ImageStore.contentTypeOf(header, bytes.length);
+	}
+}
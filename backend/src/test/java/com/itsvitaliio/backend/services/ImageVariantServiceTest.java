@@ -0,0 +1,86 @@
+package com.itsvitaliio.backend.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageVariantServiceTest {
+
+	private final ImageStore imageStore = new ImageStore("target/test-images");
+	private final ImageVariantService imageVariantService = new ImageVariantService(imageStore, new int[]{160, 480}, 1, 10);
+
+	@AfterEach
+	void tearDown() {
+		imageVariantService.shutdown();
+	}
+
+	@Test
+	void generatesVariantsAndPicksTheSmallestCoveringWidth() throws Exception {
+		Path original = Paths.get(imageStore.store(new ByteArrayInputStream(jpeg(800, 600))).path());
+
+		assertThat(imageVariantService.generate(original)).isTrue();
+		awaitVariant(original, 480);
+
+		assertThat(imageVariantService.find(original, 100)).get()
+				.satisfies(variant -> {
+					assertThat(variant.width()).isEqualTo(160);
+					assertThat(variant.contentType()).isEqualTo("image/jpeg");
+					assertThat(ImageIO.read(variant.path().toFile()).getWidth()).isEqualTo(160);
+				});
+		assertThat(imageVariantService.find(original, 161)).get().extracting(ImageVariantService.Variant::width).isEqualTo(480);
+		// Wider than every variant: the original is served
+		assertThat(imageVariantService.find(original, 481)).isEmpty();
+		assertThat(imageVariantService.generate(original)).isFalse();
+
+		imageVariantService.deleteVariants(original);
+		assertThat(imageVariantService.find(original, 100)).isEmpty();
+	}
+
+	@Test
+	void ignoresOriginalsOutsideTheStore() throws Exception {
+		Path outside = Files.createTempFile("outside-store-", ".jpg");
+		try {
+			Files.write(outside, jpeg(800, 600));
+
+			assertThat(imageVariantService.generate(outside)).isFalse();
+			Thread.sleep(200);
+			assertThat(ImageVariantService.variantPath(outside, 160, "jpg")).doesNotExist();
+			assertThat(imageVariantService.find(outside, 100)).isEmpty();
+		} finally {
+			Files.deleteIfExists(outside);
+		}
+	}
+
+	private void awaitVariant(Path original, int width) throws InterruptedException {
+		long deadline = System.nanoTime() + 10_000_000_000L;
+		Optional<ImageVariantService.Variant> variant = imageVariantService.find(original, width);
+		while (variant.isEmpty() && System.nanoTime() < deadline) {
+			Thread.sleep(20);
+			variant = imageVariantService.find(original, width);
+		}
+		assertThat(variant).isPresent();
+	}
+
+	// Random pixels, so every test run stores a new file rather than one left by an earlier run
+	private static byte[] jpeg(int width, int height) throws IOException {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		for (int x = 0; x < width; x += 10) {
+			image.setRGB(x, ThreadLocalRandom.current().nextInt(height), ThreadLocalRandom.current().nextInt());
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "jpg", out);
+		return out.toByteArray();
+	}
+}
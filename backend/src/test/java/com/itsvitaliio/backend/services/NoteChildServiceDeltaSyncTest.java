@@ -0,0 +1,154 @@
+package com.itsvitaliio.backend.services;
+
+import com.itsvitaliio.backend.dto.DeltaSyncRequest;
+import com.itsvitaliio.backend.dto.DeltaSyncResponse;
+import com.itsvitaliio.backend.dto.NoteChildDto;
+import com.itsvitaliio.backend.dto.NoteChildOperation;
+import com.itsvitaliio.backend.dto.NoteChildOperation.Kind;
+import com.itsvitaliio.backend.exceptions.InvalidEntryException;
+import com.itsvitaliio.backend.exceptions.NoteNotFoundException;
+import com.itsvitaliio.backend.exceptions.RevisionConflictException;
+import com.itsvitaliio.backend.models.Note;
+import com.itsvitaliio.backend.models.NoteChild;
+import com.itsvitaliio.backend.models.TextNode;
+import com.itsvitaliio.backend.repositories.NoteRepository;
+import com.itsvitaliio.backend.utilities.SortKeys;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"image.upload.dir=target/test-images",
+		"search.index.dir=target/test-search-index"
+})
+@Import({NoteChildService.class, NoteDocumentCache.class, ImageStore.class, ImageVariantService.class, SearchIndexService.class, SortKeyRebalancer.class})
+class NoteChildServiceDeltaSyncTest {
+
+	@Autowired
+	private NoteChildService noteChildService;
+
+	@Autowired
+	private NoteRepository noteRepository;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Test
+	void operationsApplyInOrderAndAdvanceTheRevision() {
+		String noteId = seedNote("a", "b", "c");
+		List<String> ids = childIds(noteId);
+
+		// The update refers to the insert by its temporary ID
+		DeltaSyncResponse response = noteChildService.applyOperations(noteId, new DeltaSyncRequest(0L, List.of(
+				new NoteChildOperation(Kind.INSERT, "tmp-1", "text", "new", null, 1),
+				new NoteChildOperation(Kind.UPDATE_CONTENT, "tmp-1", null, "new, edited", null, null),
+				new NoteChildOperation(Kind.MOVE, ids.get(2), null, null, null, 0),
+				new NoteChildOperation(Kind.DELETE, ids.get(0), null, null, null, null))));
+
+		assertThat(response.getRevision()).isEqualTo(1);
+		assertThat(response.getAssignedIds()).containsOnlyKeys("tmp-1");
+		entityManager.flush();
+		entityManager.clear();
+		assertThat(contents(noteId)).containsExactly("c", "new, edited", "b");
+		assertThat(childIds(noteId)).contains(response.getAssignedIds().get("tmp-1"));
+		assertThat(noteRepository.findRevisionById(noteId)).contains(1L);
+	}
+
+	@Test
+	void staleBaseRevisionIsRejectedWithTheCurrentOne() {
+		String noteId = seedNote("a", "b");
+		noteChildService.applyOperations(noteId, new DeltaSyncRequest(0L, List.of(
+				new NoteChildOperation(Kind.INSERT, null, "text", "from another device", null, 2))));
+
+		String firstId = childIds(noteId).get(0);
+		assertThatThrownBy(() -> noteChildService.applyOperations(noteId, new DeltaSyncRequest(0L, List.of(
+				new NoteChildOperation(Kind.DELETE, firstId, null, null, null, null)))))
+				.isInstanceOfSatisfying(RevisionConflictException.class,
+						e -> assertThat(e.getCurrentRevision()).isEqualTo(1));
+
+		entityManager.clear();
+		assertThat(contents(noteId)).containsExactly("a", "b", "from another device");
+		assertThat(noteRepository.findRevisionById(noteId)).contains(1L);
+	}
+
+	@Test
+	void requestsWithoutABaseRevisionOrNoteAreRejected() {
+		String noteId = seedNote("a");
+
+		assertThatThrownBy(() -> noteChildService.applyOperations(noteId, new DeltaSyncRequest(null, List.of())))
+				.isInstanceOf(InvalidEntryException.class);
+		assertThatThrownBy(() -> noteChildService.applyOperations("missing-note", new DeltaSyncRequest(0L, List.of())))
+				.isInstanceOf(NoteNotFoundException.class);
+		assertThatThrownBy(() -> noteChildService.applyOperations(noteId, new DeltaSyncRequest(0L, List.of(
+				new NoteChildOperation(Kind.DELETE, "not-a-child", null, null, null, null)))))
+				.isInstanceOf(InvalidEntryException.class);
+	}
+
+	@Test
+	void imageUploadOnlyReplacesChildrenOfTheGivenNote() {
+		String noteId = seedNote("a");
+		String otherNoteId = seedNote("other");
+		String otherChildId = childIds(otherNoteId).get(0);
+
+		assertThatThrownBy(() -> noteChildService.uploadImage(noteId, otherChildId,
+				new MockMultipartFile("image", "image.png", "image/png", new byte[]{1, 2, 3})))
+				.isInstanceOf(NoteNotFoundException.class);
+
+		entityManager.clear();
+		assertThat(contents(otherNoteId)).containsExactly("other");
+	}
+
+	@Test
+	void insertedChildrenAreOrderedBySortKeyAloneNextToUnkeyedOldRows() {
+		String noteId = seedNote("a", "b");
+		// A row from before sort keys: no key, only its old position
+		String legacyId = UUID.randomUUID().toString();
+		entityManager.persist(new TextNode(legacyId, "legacy"));
+		entityManager.persist(new NoteChild(UUID.randomUUID().toString(), noteId, legacyId, "text", 7, null));
+		entityManager.flush();
+		entityManager.clear();
+
+		DeltaSyncResponse response = noteChildService.applyOperations(noteId, new DeltaSyncRequest(0L, List.of(
+				new NoteChildOperation(Kind.INSERT, "tmp-1", "text", "new", null, 1))));
+		entityManager.flush();
+		entityManager.clear();
+
+		assertThat(entityManager.find(NoteChild.class, response.getAssignedIds().get("tmp-1")).getPosition()).isNull();
+		assertThat(contents(noteId)).containsExactly("a", "new", "b", "legacy");
+	}
+
+	private List<String> childIds(String noteId) {
+		return noteChildService.getAllNoteChildren(noteId).stream().map(NoteChildDto::getId).toList();
+	}
+
+	private List<String> contents(String noteId) {
+		return noteChildService.getAllNoteChildren(noteId).stream().map(dto -> dto.getTextNode().getContent()).toList();
+	}
+
+	private String seedNote(String... contents) {
+		Note note = new Note();
+		note.setTitle("Note");
+		note.setLastInteractedWith(LocalDateTime.now());
+		String noteId = entityManager.persist(note).getId();
+		List<String> sortKeys = SortKeys.evenlySpaced(contents.length);
+		for (int position = 0; position < contents.length; position++) {
+			String childId = UUID.randomUUID().toString();
+			entityManager.persist(new TextNode(childId, contents[position]));
+			entityManager.persist(new NoteChild(UUID.randomUUID().toString(), noteId, childId, "text", position, sortKeys.get(position)));
+		}
+		entityManager.flush();
+		entityManager.clear();
+		return noteId;
+	}
+}
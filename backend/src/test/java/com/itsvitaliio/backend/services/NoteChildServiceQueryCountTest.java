@@ -0,0 +1,107 @@
+package com.itsvitaliio.backend.services;
+
+import com.itsvitaliio.backend.dto.NoteChildDto;
+import com.itsvitaliio.backend.models.ImageNode;
+import com.itsvitaliio.backend.models.Note;
+import com.itsvitaliio.backend.models.NoteChild;
+import com.itsvitaliio.backend.models.TextNode;
+import com.itsvitaliio.backend.utilities.SortKeys;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static com.itsvitaliio.backend.utilities.StatementCountAssertions.assertStatementCount;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=com.itsvitaliio.backend.utilities.StatementCounter",
+		"image.upload.dir=target/test-images",
+		"search.index.dir=target/test-search-index"
+})
+@Import({NoteChildService.class, NoteDocumentCache.class, ImageStore.class, ImageVariantService.class, SearchIndexService.class, SortKeyRebalancer.class})
+class NoteChildServiceQueryCountTest {
+
+	@Autowired
+	private NoteChildService noteChildService;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void getAllNoteChildrenUsesFixedNumberOfQueries() {
+		assertThat(queriesToHydrate(seedNote(4))).isEqualTo(queriesToHydrate(seedNote(400)));
+	}
+
+	@Test
+	void getAllNoteChildrenHydratesWithOneStatementPerTable() {
+		String noteId = seedNote(30);
+		entityManager.flush();
+		entityManager.clear();
+
+		// Revision, children, then one IN query each for text and image nodes
+		List<NoteChildDto> children = assertStatementCount(4, () -> noteChildService.getAllNoteChildren(noteId));
+
+		assertThat(children).hasSize(30);
+	}
+
+	@Test
+	void getAllNoteChildrenReturnsChildrenInSortKeyOrder() {
+		String noteId = seedNote(10);
+		entityManager.flush();
+		entityManager.clear();
+
+		List<NoteChildDto> children = noteChildService.getAllNoteChildren(noteId);
+
+		assertThat(children).hasSize(10);
+		assertThat(children).extracting(NoteChildDto::getPosition).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+		assertThat(children.get(1).getTextNode().getContent()).isEqualTo("block 1");
+		assertThat(children.get(8).getTextNode().getContent()).isEqualTo("block 8");
+		assertThat(children).allSatisfy(dto ->
+				assertThat(dto.getTextNode() != null || dto.getImageNode() != null).isTrue());
+	}
+
+	private long queriesToHydrate(String noteId) {
+		entityManager.flush();
+		entityManager.clear();
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		noteChildService.getAllNoteChildren(noteId);
+
+		return statistics.getPrepareStatementCount();
+	}
+
+	private String seedNote(int size) {
+		Note note = new Note();
+		note.setTitle("Note");
+		note.setLastInteractedWith(LocalDateTime.now());
+		String noteId = entityManager.persist(note).getId();
+		List<String> sortKeys = SortKeys.evenlySpaced(size);
+		// Insert in reverse so the service has to sort by key itself
+		for (int position = size - 1; position >= 0; position--) {
+			String childId = UUID.randomUUID().toString();
+			if (position % 3 == 0) {
+				entityManager.persist(new ImageNode(childId, "images/" + childId + ".jpg"));
+				entityManager.persist(new NoteChild(UUID.randomUUID().toString(), noteId, childId, "image", position, sortKeys.get(position)));
+			} else {
+				entityManager.persist(new TextNode(childId, "block " + position));
+				entityManager.persist(new NoteChild(UUID.randomUUID().toString(), noteId, childId, "text", position, sortKeys.get(position)));
+			}
+		}
+		return noteId;
+	}
+}
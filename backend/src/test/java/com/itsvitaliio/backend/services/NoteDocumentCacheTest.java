@@ -0,0 +1,45 @@
+package com.itsvitaliio.backend.services;
+
+import com.itsvitaliio.backend.dto.NoteChildDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NoteDocumentCacheTest {
+
+	private final NoteDocumentCache cache = new NoteDocumentCache(1 << 20);
+	private final AtomicLong revision = new AtomicLong(1);
+
+	@Test
+	void documentOlderThanTheRevisionReadIsReloaded() {
+		assertThat(get(1).revision()).isEqualTo(1);
+
+		// A write committed after the entry was cached, and its eviction came too early to drop it
+		revision.set(2);
+		assertThat(get(1).revision()).isEqualTo(1);
+		assertThat(get(2).revision()).isEqualTo(2);
+
+		// The reload replaced the stale entry
+		revision.set(3);
+		assertThat(get(1).revision()).isEqualTo(2);
+	}
+
+	@Test
+	void reloadDoesNotReplaceANewerEntry() {
+		get(1);
+		revision.set(5);
+		get(5);
+
+		revision.set(4);
+		assertThat(cache.get("note-1", 3, id -> {
+			throw new AssertionError("Entry at revision 5 satisfies revision 3");
+		}).revision()).isEqualTo(5);
+	}
+
+	private NoteDocumentCache.NoteDocument get(long minRevision) {
+		return cache.get("note-1", minRevision, id -> new NoteDocumentCache.NoteDocument(revision.get(), List.of(new NoteChildDto())));
+	}
+}
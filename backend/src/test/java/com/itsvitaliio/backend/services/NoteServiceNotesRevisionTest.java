@@ -0,0 +1,74 @@
+package com.itsvitaliio.backend.services;
+
+import com.itsvitaliio.backend.dto.CreateNoteRequest;
+import com.itsvitaliio.backend.dto.DeleteNoteRequest;
+import com.itsvitaliio.backend.dto.EditNoteTitleRequest;
+import com.itsvitaliio.backend.exceptions.NoteNotFoundException;
+import com.itsvitaliio.backend.models.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"image.upload.dir=target/test-images",
+		"search.index.dir=target/test-search-index"
+})
+@Import({NoteService.class, UserNoteService.class, NoteDocumentCache.class, SearchIndexService.class})
+class NoteServiceNotesRevisionTest {
+
+	@Autowired
+	private NoteService noteService;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Test
+	void everyChangeToTheListAdvancesTheRevision() {
+		String userId = persistUser("owner");
+		assertThat(noteService.getNotesRevision(userId)).contains(0L);
+
+		String noteId = noteService.createNoteWithUserAssociation(userId, new CreateNoteRequest("Groceries")).getId();
+		assertThat(noteService.getNotesRevision(userId)).contains(1L);
+
+		noteService.editNoteTitle(userId, new EditNoteTitleRequest(noteId, "Shopping"));
+		assertThat(noteService.getNotesRevision(userId)).contains(2L);
+
+		noteService.deleteNote(userId, new DeleteNoteRequest(noteId));
+		assertThat(noteService.getNotesRevision(userId)).contains(3L);
+		assertThat(noteService.getAllNotesForUser(userId)).isEmpty();
+	}
+
+	@Test
+	void changesToAnotherUsersNoteLeaveBothRevisionsAlone() {
+		String ownerId = persistUser("owner");
+		String otherId = persistUser("other");
+		String noteId = noteService.createNoteWithUserAssociation(ownerId, new CreateNoteRequest("Private")).getId();
+
+		assertThatThrownBy(() -> noteService.editNoteTitle(otherId, new EditNoteTitleRequest(noteId, "Mine now")))
+				.isInstanceOf(NoteNotFoundException.class);
+		assertThatThrownBy(() -> noteService.deleteNote(otherId, new DeleteNoteRequest(noteId)))
+				.isInstanceOf(NoteNotFoundException.class);
+
+		assertThat(noteService.getNotesRevision(ownerId)).contains(1L);
+		assertThat(noteService.getNotesRevision(otherId)).contains(0L);
+	}
+
+	private String persistUser(String username) {
+		User user = new User();
+		user.setId(UUID.randomUUID().toString());
+		user.setUsername(username);
+		user.setEmail(user.getId() + "@example.com");
+		user.setPassword("x");
+		entityManager.persist(user);
+		entityManager.flush();
+		return user.getId();
+	}
+}
@@ -0,0 +1,176 @@
+package com.itsvitaliio.backend.services;
+
+import com.itsvitaliio.backend.dto.SearchResultDto;
+import com.itsvitaliio.backend.models.Note;
+import com.itsvitaliio.backend.models.User;
+import com.itsvitaliio.backend.models.UserNote;
+import com.itsvitaliio.backend.repositories.NoteChildRepository;
+import com.itsvitaliio.backend.repositories.UserNoteRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.transaction.TestTransaction;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"search.index.dir=target/test-search-index"
+})
+@Import(SearchIndexService.class)
+class SearchIndexServiceTest {
+
+	@Autowired
+	private SearchIndexService searchIndexService;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private NoteChildRepository noteChildRepository;
+
+	@Autowired
+	private UserNoteRepository userNoteRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void termsAreLowerCasedRunsOfLettersAndDigits() {
+		assertThat(SearchIndexService.terms("Hello, Wörld! route-66 __x__")).containsExactly("hello", "wörld", "route", "66", "x");
+		assertThat(SearchIndexService.terms("  ...  ")).isEmpty();
+		assertThat(SearchIndexService.terms(null)).isEmpty();
+	}
+
+	@Test
+	void blocksMatchEveryTermWithTheLastAsPrefix() {
+		SearchIndexService.UserIndex index = new SearchIndexService.UserIndex();
+		index.put("block-1", "note-1", "Milk and eggs");
+		index.put("block-2", "note-1", "Eggplant");
+		index.put("block-3", "note-2", "milk");
+
+		List<SearchResultDto> results = index.search(List.of("milk", "eg"), 10);
+
+		assertThat(results).hasSize(1);
+		assertThat(results.get(0).getNoteId()).isEqualTo("note-1");
+		assertThat(results.get(0).getBlocks()).singleElement().satisfies(block -> {
+			assertThat(block.getBlockId()).isEqualTo("block-1");
+			assertThat(block.getHighlights()).containsExactly(
+					new SearchResultDto.Highlight(0, 4), new SearchResultDto.Highlight(9, 13));
+		});
+
+		index.remove("block-1");
+		assertThat(index.search(List.of("milk", "eg"), 10)).isEmpty();
+		index.removeNote("note-2");
+		assertThat(index.search(List.of("milk"), 10)).isEmpty();
+	}
+
+	@Test
+	void snapshotRoundTripsAndRejectsOtherVersions() throws IOException {
+		SearchIndexService.UserIndex index = new SearchIndexService.UserIndex();
+		index.put("block-1", "note-1", "Zebra crossing");
+		index.put("block-2", "note-2", "ünïcödé text");
+		Path snapshot = Files.createTempFile("search-index-", ".idx");
+		try {
+			index.writeTo(snapshot);
+			assertThat(index.isDirty()).isFalse();
+
+			SearchIndexService.UserIndex loaded = SearchIndexService.UserIndex.readFrom(snapshot);
+			assertThat(loaded.isDirty()).isFalse();
+			assertThat(loaded.search(List.of("zeb"), 10)).extracting(SearchResultDto::getNoteId).containsExactly("note-1");
+			assertThat(loaded.search(List.of("ünïcödé"), 10)).extracting(SearchResultDto::getNoteId).containsExactly("note-2");
+
+			try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(snapshot))) {
+				out.writeInt(99);
+				out.writeInt(0);
+			}
+			assertThatThrownBy(() -> SearchIndexService.UserIndex.readFrom(snapshot)).isInstanceOf(IOException.class);
+		} finally {
+			Files.deleteIfExists(snapshot);
+		}
+	}
+
+	@Test
+	void hooksApplyOnlyOnceTheirTransactionCommits() {
+		String[] owner = persistNoteAndCommit();
+		String userId = owner[0];
+		String noteId = owner[1];
+
+		TestTransaction.start();
+		searchIndexService.indexBlock(noteId, "block-1", "zebra crossing");
+		assertThat(searchIndexService.search(userId, "zebra", 10)).isEmpty();
+		TestTransaction.flagForCommit();
+		TestTransaction.end();
+		assertThat(searchIndexService.search(userId, "zebra", 10)).extracting(SearchResultDto::getNoteId).containsExactly(noteId);
+
+		TestTransaction.start();
+		searchIndexService.indexBlock(noteId, "block-2", "striped yak");
+		searchIndexService.removeBlock(noteId, "block-1");
+		TestTransaction.end();
+		assertThat(searchIndexService.search(userId, "yak", 10)).isEmpty();
+		assertThat(searchIndexService.search(userId, "zebra", 10)).hasSize(1);
+	}
+
+	@Test
+	void snapshotsAreOnlyTrustedAfterACleanShutdown() {
+		String[] owner = persistNoteAndCommit();
+		String userId = owner[0];
+		String noteId = owner[1];
+		Path dir = Paths.get("target/test-search-index-" + UUID.randomUUID());
+
+		// Blocks indexed here are not in the database, so finding them after a restart means the snapshot was used
+		SearchIndexService first = newService(dir);
+		first.indexBlock(noteId, "block-1", "zebra");
+		first.shutdown();
+		assertThat(dir.resolve(SearchIndexService.CLEAN_SHUTDOWN_MARKER)).exists();
+
+		SearchIndexService second = newService(dir);
+		assertThat(dir.resolve(SearchIndexService.CLEAN_SHUTDOWN_MARKER)).doesNotExist();
+		assertThat(second.search(userId, "zebra", 10)).hasSize(1);
+		second.indexBlock(noteId, "block-2", "yak");
+		second.flushDirty();
+		// No shutdown: the process died, and updates after the flush could have been lost with it
+
+		SearchIndexService third = newService(dir);
+		assertThat(third.search(userId, "zebra", 10)).isEmpty();
+		assertThat(third.search(userId, "yak", 10)).isEmpty();
+	}
+
+	private SearchIndexService newService(Path dir) {
+		SearchIndexService service = new SearchIndexService(dir.toString(), 10, noteChildRepository, userNoteRepository,
+				transactionManager);
+		service.start();
+		return service;
+	}
+
+	// Commits the test transaction, so the hooks' after-commit behaviour can be observed
+	private String[] persistNoteAndCommit() {
+		User user = new User();
+		user.setId(UUID.randomUUID().toString().substring(0, 10));
+		user.setUsername("search");
+		user.setEmail(user.getId() + "@example.com");
+		user.setPassword("x");
+		entityManager.persist(user);
+		Note note = new Note();
+		note.setTitle("Note");
+		note.setLastInteractedWith(LocalDateTime.now());
+		entityManager.persist(note);
+		entityManager.persist(new UserNote(null, user, note));
+		TestTransaction.flagForCommit();
+		TestTransaction.end();
+		return new String[]{user.getId(), note.getId()};
+	}
+}
@@ -0,0 +1,72 @@
+package com.itsvitaliio.backend.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserPrincipalCacheTest {
+
+	private final UserPrincipalCache cache = new UserPrincipalCache(Duration.ofMinutes(1), 100);
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@AfterEach
+	void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void evictionWaitsForTheCommit() {
+		load("user-1");
+		TransactionSynchronizationManager.initSynchronization();
+		cache.evict("user-1");
+
+		// A request racing the commit still sees the cached principal instead of caching the old row again
+		load("user-1");
+		assertThat(loads).hasValue(1);
+
+		List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+		TransactionSynchronizationManager.clearSynchronization();
+		synchronizations.forEach(TransactionSynchronization::afterCommit);
+		load("user-1");
+		assertThat(loads).hasValue(2);
+	}
+
+	@Test
+	void rolledBackChangesKeepThePrincipal() {
+		load("user-1");
+		TransactionSynchronizationManager.initSynchronization();
+		cache.evict("user-1");
+
+		List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+		TransactionSynchronizationManager.clearSynchronization();
+		synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+		load("user-1");
+		assertThat(loads).hasValue(1);
+	}
+
+	@Test
+	void evictsAtOnceOutsideATransaction() {
+		load("user-1");
+		cache.evict("user-1");
+		load("user-1");
+		assertThat(loads).hasValue(2);
+	}
+
+	private UserDetails load(String userId) {
+		return cache.get(userId, id -> {
+			loads.incrementAndGet();
+			return User.withUsername(id).password("x").roles("USER").build();
+		});
+	}
+}
@@ -0,0 +1,66 @@
+package com.itsvitaliio.backend.utilities;
+
+import com.itsvitaliio.backend.services.DatabaseBulkhead;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// One permit, so whether a second connection can be borrowed shows whether the first one's permit came back
+class BulkheadDataSourceTest {
+
+	private final DataSource target = mock(DataSource.class);
+	private final BulkheadDataSource dataSource = new BulkheadDataSource(target,
+			new DatabaseBulkhead(1, Duration.ofMillis(50)));
+
+	@Test
+	void permitIsReturnedWhenTheConnectionCloses() throws Exception {
+		when(target.getConnection()).thenReturn(mock(Connection.class));
+
+		Connection first = dataSource.getConnection();
+		assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+
+		first.close();
+		assertThat(dataSource.getConnection()).isNotNull();
+	}
+
+	@Test
+	void closingTwiceReturnsThePermitOnce() throws Exception {
+		when(target.getConnection()).thenReturn(mock(Connection.class));
+
+		Connection first = dataSource.getConnection();
+		first.close();
+		first.close();
+
+		dataSource.getConnection();
+		assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+	}
+
+	@Test
+	void permitIsReturnedWhenThePoolFails() throws Exception {
+		when(target.getConnection()).thenThrow(new SQLException("pool exhausted")).thenReturn(mock(Connection.class));
+
+		assertThatThrownBy(dataSource::getConnection).hasMessage("pool exhausted");
+		assertThat(dataSource.getConnection()).isNotNull();
+	}
+
+	@Test
+	void acquireGivesUpAfterMaxWait() throws Exception {
+		when(target.getConnection()).thenReturn(mock(Connection.class));
+		dataSource.getConnection();
+
+		long start = System.nanoTime();
+		assertThatThrownBy(dataSource::getConnection)
+				.isInstanceOf(SQLTransientConnectionException.class)
+				.hasMessageContaining("No database permit available within 50 ms");
+		assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(Duration.ofMillis(50).toNanos());
+	}
+}
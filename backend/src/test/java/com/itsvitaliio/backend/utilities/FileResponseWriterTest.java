@@ -0,0 +1,140 @@
+package com.itsvitaliio.backend.utilities;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileResponseWriterTest {
+
+	private static final String ETAG = "\"abc123\"";
+	private static final byte[] BODY = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+	private Path file;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		file = Files.createTempFile("file-response-", ".bin");
+		Files.write(file, BODY);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	void writesTheWholeFileWithoutARange() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		long sent = write(new MockHttpServletRequest("GET", "/"), response);
+
+		assertThat(sent).isEqualTo(10);
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getHeader("Accept-Ranges")).isEqualTo("bytes");
+		assertThat(response.getContentType()).isEqualTo("image/png");
+		assertThat(response.getContentLengthLong()).isEqualTo(10);
+		assertThat(response.getContentAsString()).isEqualTo("0123456789");
+	}
+
+	@Test
+	void writesASingleRangeAsPartialContent() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		long sent = write(ranged("bytes=2-5"), response);
+
+		assertThat(sent).isEqualTo(4);
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getHeader("Content-Range")).isEqualTo("bytes 2-5/10");
+		assertThat(response.getContentLengthLong()).isEqualTo(4);
+		assertThat(response.getContentAsString()).isEqualTo("2345");
+
+		MockHttpServletResponse suffix = new MockHttpServletResponse();
+		write(ranged("bytes=-3"), suffix);
+		assertThat(suffix.getHeader("Content-Range")).isEqualTo("bytes 7-9/10");
+		assertThat(suffix.getContentAsString()).isEqualTo("789");
+	}
+
+	@Test
+	void rejectsARangeOutsideTheFile() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		long sent = write(ranged("bytes=20-30"), response);
+
+		assertThat(sent).isZero();
+		assertThat(response.getStatus()).isEqualTo(416);
+		assertThat(response.getHeader("Content-Range")).isEqualTo("bytes */10");
+		assertThat(response.getContentAsByteArray()).isEmpty();
+	}
+
+	@Test
+	void sendsTheWholeFileForMultipleOrMalformedRanges() throws Exception {
+		for (String range : new String[]{"bytes=0-1,4-5", "items=0-1"}) {
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			write(ranged(range), response);
+			assertThat(response.getStatus()).as(range).isEqualTo(200);
+			assertThat(response.getContentAsString()).as(range).isEqualTo("0123456789");
+		}
+	}
+
+	@Test
+	void honoursTheRangeOnlyWhileIfRangeNamesTheCurrentETag() throws Exception {
+		MockHttpServletRequest current = ranged("bytes=0-1");
+		current.addHeader("If-Range", ETAG);
+		MockHttpServletResponse partial = new MockHttpServletResponse();
+		write(current, partial);
+		assertThat(partial.getStatus()).isEqualTo(206);
+		assertThat(partial.getContentAsString()).isEqualTo("01");
+
+		MockHttpServletRequest stale = ranged("bytes=0-1");
+		stale.addHeader("If-Range", "\"older\"");
+		MockHttpServletResponse full = new MockHttpServletResponse();
+		write(stale, full);
+		assertThat(full.getStatus()).isEqualTo(200);
+		assertThat(full.getHeader("Content-Range")).isNull();
+		assertThat(full.getContentAsString()).isEqualTo("0123456789");
+	}
+
+	@Test
+	void headWritesHeadersOnly() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		long sent = write(new MockHttpServletRequest("HEAD", "/"), response);
+
+		assertThat(sent).isZero();
+		assertThat(response.getContentLengthLong()).isEqualTo(10);
+		assertThat(response.getContentAsByteArray()).isEmpty();
+	}
+
+	@Test
+	void leavesTheRangeToSendfileWhenTheConnectorOffersIt() throws Exception {
+		MockHttpServletRequest request = ranged("bytes=2-5");
+		request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		long sent = write(request, response);
+
+		assertThat(sent).isEqualTo(4);
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename")).isEqualTo(file.toAbsolutePath().toString());
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(2L);
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(6L);
+		assertThat(response.getContentAsByteArray()).isEmpty();
+	}
+
+	private long write(MockHttpServletRequest request, MockHttpServletResponse response) throws Exception {
+		return FileResponseWriter.write(request, response, file, BODY.length, "image/png", ETAG);
+	}
+
+	private static MockHttpServletRequest ranged(String range) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+		request.addHeader("Range", range);
+		return request;
+	}
+}
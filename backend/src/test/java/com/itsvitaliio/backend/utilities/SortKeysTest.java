@@ -0,0 +1,58 @@
+package com.itsvitaliio.backend.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SortKeysTest {
+
+	@Test
+	void betweenStaysOrderedUnderRandomInserts() {
+		Random random = new Random(42);
+		List<String> keys = new ArrayList<>(SortKeys.evenlySpaced(100));
+		for (int i = 0; i < 5_000; i++) {
+			int index = random.nextInt(keys.size() + 1);
+			String before = index > 0 ? keys.get(index - 1) : null;
+			String after = index < keys.size() ? keys.get(index) : null;
+			keys.add(index, SortKeys.between(before, after));
+		}
+
+		assertThat(keys).isSorted().doesNotHaveDuplicates();
+		assertThat(keys).noneMatch(key -> key.endsWith("0"));
+	}
+
+	@Test
+	void repeatedInsertsAtTheTopGrowSlowly() {
+		String first = null;
+		for (int i = 0; i < 100; i++) {
+			first = SortKeys.between(null, first);
+		}
+		assertThat(first.length()).isLessThan(SortKeys.REBALANCE_LENGTH);
+	}
+
+	@Test
+	void evenlySpacedKeysAreShortAndOrdered() {
+		List<String> keys = SortKeys.evenlySpaced(10_000);
+
+		assertThat(keys).hasSize(10_000).isSorted().doesNotHaveDuplicates();
+		assertThat(keys).allMatch(key -> key.length() <= 4);
+	}
+
+	@Test
+	void reconcileOnlyRekeysMovedItems() {
+		List<String> keys = SortKeys.evenlySpaced(5);
+		// Last item moved to the front and a new item appended
+		List<String> current = Arrays.asList(keys.get(4), keys.get(0), keys.get(1), keys.get(2), keys.get(3), null);
+
+		List<String> reconciled = SortKeys.reconcile(current);
+
+		assertThat(reconciled).isSorted().doesNotHaveDuplicates();
+		assertThat(reconciled.subList(1, 5)).isEqualTo(keys.subList(0, 4));
+		assertThat(reconciled.get(0)).isNotEqualTo(keys.get(4));
+	}
+}
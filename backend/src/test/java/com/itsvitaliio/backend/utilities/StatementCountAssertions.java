@@ -0,0 +1,39 @@
+package com.itsvitaliio.backend.utilities;
+
+import com.itsvitaliio.backend.filter.StatementBudgetFilter;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Pins the number of SQL statements a piece of code or an endpoint runs.
+// Needs StatementCounter as Hibernate's statement inspector, which the application registers itself;
+// slice tests set spring.jpa.properties.hibernate.session_factory.statement_inspector instead.
+public final class StatementCountAssertions {
+
+	private StatementCountAssertions() {
+	}
+
+	public static <T> T assertStatementCount(long expected, Supplier<T> action) {
+		try (StatementCounter.Scope scope = StatementCounter.open()) {
+			T result = action.get();
+			assertThat(scope.count()).as("SQL statements run").isEqualTo(expected);
+			return result;
+		}
+	}
+
+	public static void assertStatementCount(long expected, Runnable action) {
+		assertStatementCount(expected, () -> {
+			action.run();
+			return null;
+		});
+	}
+
+	// For MockMvc tests: the count StatementBudgetFilter recorded for the request
+	public static void assertStatementCount(long expected, MvcResult result) {
+		assertThat(result.getRequest().getAttribute(StatementBudgetFilter.STATEMENT_COUNT_ATTRIBUTE))
+				.as("SQL statements run by " + result.getRequest().getRequestURI())
+				.isEqualTo(expected);
+	}
+}
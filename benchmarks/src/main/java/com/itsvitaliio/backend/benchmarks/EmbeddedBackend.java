@@ -0,0 +1,41 @@
+package com.itsvitaliio.backend.benchmarks;
+
+import com.itsvitaliio.backend.BackendApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Boots the real application against a private in-memory H2 database, so nothing outside the JVM is needed
+public class EmbeddedBackend {
+
+    public static ConfigurableApplicationContext start(String name, Map<String, Object> overrides) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.datasource.url", "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("jwt.secret", "benchmark-secret-benchmark-secret-benchmark-secret");
+        properties.put("server.port", "0");
+        properties.put("image.upload.dir", "target/" + name + "/images");
+        properties.put("search.index.dir", "target/" + name + "/search-index");
+        properties.put("request-logging.enabled", "false");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.org.hibernate.SQL", "WARN");
+        properties.put("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "WARN");
+        properties.putAll(overrides);
+        // As command-line arguments they take precedence over application.properties, whose datasource
+        // and secret are ${...} placeholders; builder properties would only be defaults below it
+        String[] args = properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(BackendApplication.class).run(args);
+    }
+
+    public static ConfigurableApplicationContext start(String name) {
+        return start(name, Map.of());
+    }
+}
@@ -0,0 +1,107 @@
+package com.itsvitaliio.backend.benchmarks;
+
+import com.itsvitaliio.backend.dto.NoteChildDto;
+import com.itsvitaliio.backend.models.ImageNode;
+import com.itsvitaliio.backend.models.Note;
+import com.itsvitaliio.backend.models.NoteChild;
+import com.itsvitaliio.backend.models.TextNode;
+import com.itsvitaliio.backend.models.User;
+import com.itsvitaliio.backend.models.UserNote;
+import com.itsvitaliio.backend.repositories.NoteChildRepository;
+import com.itsvitaliio.backend.repositories.NoteRepository;
+import com.itsvitaliio.backend.repositories.TextNodeRepository;
+import com.itsvitaliio.backend.repositories.UserNoteRepository;
+import com.itsvitaliio.backend.repositories.UserRepository;
+import com.itsvitaliio.backend.utilities.SortKeys;
+import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+// Seeds users and notes straight through the repositories
+public class Fixtures {
+
+    private final UserRepository userRepository;
+    private final NoteRepository noteRepository;
+    private final UserNoteRepository userNoteRepository;
+    private final TextNodeRepository textNodeRepository;
+    private final NoteChildRepository noteChildRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public Fixtures(ApplicationContext context) {
+        this.userRepository = context.getBean(UserRepository.class);
+        this.noteRepository = context.getBean(NoteRepository.class);
+        this.userNoteRepository = context.getBean(UserNoteRepository.class);
+        this.textNodeRepository = context.getBean(TextNodeRepository.class);
+        this.noteChildRepository = context.getBean(NoteChildRepository.class);
+        this.transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    public User createUser(String username, String encodedPassword) {
+        return transactionTemplate.execute(status -> {
+            User user = new User();
+            user.setId(UUID.randomUUID().toString());
+            user.setUsername(username);
+            user.setEmail(username + "@example.com");
+            user.setPassword(encodedPassword);
+            user.setRoles(new HashSet<>(Set.of("USER")));
+            return userRepository.save(user);
+        });
+    }
+
+    // A note owned by user with the given number of text blocks of roughly blockLength characters
+    public String createNote(User user, int blocks, int blockLength) {
+        return transactionTemplate.execute(status -> {
+            Note note = new Note();
+            note.setTitle("Benchmark note");
+            note.setLastInteractedWith(LocalDateTime.now());
+            noteRepository.save(note);
+            userNoteRepository.save(new UserNote(null, user, note));
+
+            List<String> sortKeys = SortKeys.evenlySpaced(blocks);
+            for (int i = 0; i < blocks; i++) {
+                String childId = UUID.randomUUID().toString();
+                textNodeRepository.insert(new TextNode(childId, text(i, blockLength)));
+                noteChildRepository.insert(new NoteChild(UUID.randomUUID().toString(), note.getId(), childId, "text", i, sortKeys.get(i)));
+            }
+            return note.getId();
+        });
+    }
+
+    // A hydrated note as the note-children endpoints return it, with 200-character text blocks
+    public static List<NoteChildDto> noteDocument(int blocks) {
+        String noteId = UUID.randomUUID().toString();
+        List<NoteChildDto> document = new ArrayList<>(blocks);
+        for (int i = 0; i < blocks; i++) {
+            NoteChildDto dto = new NoteChildDto();
+            dto.setId(UUID.randomUUID().toString());
+            dto.setNoteId(noteId);
+            dto.setPosition(i);
+            // One image in ten, as in a typical note
+            if (i % 10 == 9) {
+                dto.setType("image");
+                dto.setImageNode(new ImageNode(UUID.randomUUID().toString(), "images/ab/cd/" + UUID.randomUUID()));
+            } else {
+                dto.setType("text");
+                dto.setTextNode(new TextNode(UUID.randomUUID().toString(), text(i, 200)));
+            }
+            document.add(dto);
+        }
+        return document;
+    }
+
+    public static String text(int seed, int length) {
+        StringBuilder text = new StringBuilder(length);
+        int word = seed;
+        while (text.length() < length) {
+            text.append("word").append(word++ % 997).append(' ');
+        }
+        return text.substring(0, length);
+    }
+}
@@ -0,0 +1,67 @@
+package com.itsvitaliio.backend.benchmarks;
+
+import com.itsvitaliio.backend.utilities.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Token verification as JwtFilter does it on every request, for a repeat caller and for unseen tokens
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtUtilBenchmark {
+
+    // Larger than JwtUtil's verified-token cache, so cycling through them mostly misses
+    private static final int DISTINCT_TOKENS = 50_000;
+
+    private JwtUtil jwtUtil;
+    private String token;
+    private String[] tokens;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "benchmark-secret-benchmark-secret-benchmark-secret");
+        ReflectionTestUtils.invokeMethod(jwtUtil, "init");
+
+        token = jwtUtil.generateToken(UUID.randomUUID().toString());
+        tokens = new String[DISTINCT_TOKENS];
+        for (int i = 0; i < DISTINCT_TOKENS; i++) {
+            tokens[i] = jwtUtil.generateToken(UUID.randomUUID().toString());
+        }
+    }
+
+    @Benchmark
+    public Claims verifyRepeatedToken() {
+        return jwtUtil.verify(token);
+    }
+
+    @Benchmark
+    public Claims verifyUnseenToken() {
+        String candidate = tokens[next];
+        next = (next + 1) % DISTINCT_TOKENS;
+        return jwtUtil.verify(candidate);
+    }
+
+    @Benchmark
+    public String generate() {
+        return jwtUtil.generateToken("benchmark-user");
+    }
+}
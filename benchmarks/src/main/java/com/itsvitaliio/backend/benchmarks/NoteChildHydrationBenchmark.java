@@ -0,0 +1,65 @@
+package com.itsvitaliio.backend.benchmarks;
+
+import com.itsvitaliio.backend.dto.NoteChildDto;
+import com.itsvitaliio.backend.services.NoteChildService;
+import com.itsvitaliio.backend.services.NoteDocumentCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// getAllNoteChildren: loading and hydrating a note from the database, and the cached path
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NoteChildHydrationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int blocks;
+
+    private ConfigurableApplicationContext context;
+    private NoteChildService noteChildService;
+    private NoteDocumentCache noteDocumentCache;
+    private String noteId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = EmbeddedBackend.start("hydration");
+        noteChildService = context.getBean(NoteChildService.class);
+        noteDocumentCache = context.getBean(NoteDocumentCache.class);
+        Fixtures fixtures = new Fixtures(context);
+        noteId = fixtures.createNote(fixtures.createUser("hydration", "x"), blocks, 200);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<NoteChildDto> fromDatabase() {
+        noteDocumentCache.evict(noteId);
+        return noteChildService.getAllNoteChildren(noteId);
+    }
+
+    @Benchmark
+    public List<NoteChildDto> fromCache() {
+        return noteChildService.getAllNoteChildren(noteId);
+    }
+}
@@ -0,0 +1,83 @@
+package com.itsvitaliio.backend.benchmarks;
+
+import com.itsvitaliio.backend.dto.NoteChildDto;
+import com.itsvitaliio.backend.models.TextNode;
+import com.itsvitaliio.backend.services.NoteChildService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// syncNoteChildren: the full-document diff loop, with nothing changed and with one block edited
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NoteChildSyncBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int blocks;
+
+    private ConfigurableApplicationContext context;
+    private NoteChildService noteChildService;
+    private String noteId;
+    private List<NoteChildDto> document;
+    private TextNode editedBlock;
+    private long edits;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = EmbeddedBackend.start("sync");
+        noteChildService = context.getBean(NoteChildService.class);
+        Fixtures fixtures = new Fixtures(context);
+        noteId = fixtures.createNote(fixtures.createUser("sync", "x"), blocks, 200);
+
+        // Work on copies; the service's own DTOs may be shared with its cache
+        document = noteChildService.getAllNoteChildren(noteId).stream()
+                .map(NoteChildSyncBenchmark::copy)
+                .collect(Collectors.toList());
+        editedBlock = document.get(blocks / 2).getTextNode();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<NoteChildDto> unchanged() {
+        return noteChildService.syncNoteChildren(noteId, document);
+    }
+
+    @Benchmark
+    public List<NoteChildDto> oneBlockEdited() {
+        editedBlock.setContent(Fixtures.text((int) edits++, 200));
+        return noteChildService.syncNoteChildren(noteId, document);
+    }
+
+    private static NoteChildDto copy(NoteChildDto source) {
+        NoteChildDto dto = new NoteChildDto();
+        dto.setId(source.getId());
+        dto.setNoteId(source.getNoteId());
+        dto.setType(source.getType());
+        dto.setPosition(source.getPosition());
+        dto.setTextNode(new TextNode(source.getTextNode().getId(), source.getTextNode().getContent()));
+        return dto;
+    }
+}
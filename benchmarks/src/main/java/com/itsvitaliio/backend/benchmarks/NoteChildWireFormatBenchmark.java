@@ -0,0 +1,94 @@
+package com.itsvitaliio.backend.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.luben.zstd.ZstdOutputStream;
+import com.itsvitaliio.backend.config.CompressionProperties;
+import com.itsvitaliio.backend.config.WireFormatConfig;
+import com.itsvitaliio.backend.dto.NoteChildDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// Encode CPU of a note document per wire format and content coding, with the mappers and levels the
+// backend uses. The size of each encoding is printed once per trial, so bytes and time can be compared.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class NoteChildWireFormatBenchmark {
+
+    @Param({"100", "1000"})
+    private int blocks;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"identity", "gzip", "zstd"})
+    private String coding;
+
+    private ObjectMapper objectMapper;
+    private List<NoteChildDto> document;
+    private ByteArrayOutputStream buffer;
+    private int zstdLevel;
+    private int gzipLevel;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = switch (format) {
+            case "cbor" -> WireFormatConfig.cborObjectMapper(Jackson2ObjectMapperBuilder.cbor());
+            case "smile" -> WireFormatConfig.smileObjectMapper(Jackson2ObjectMapperBuilder.smile());
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+        CompressionProperties defaults = new CompressionProperties();
+        zstdLevel = defaults.getZstdLevel();
+        gzipLevel = defaults.getGzipLevel();
+        document = Fixtures.noteDocument(blocks);
+        buffer = new ByteArrayOutputStream(1 << 20);
+
+        System.out.println("NoteChildWireFormatBenchmark - " + blocks + " blocks as " + format + "/" + coding
+                + ": " + encode() + " bytes");
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        buffer.reset();
+        try (OutputStream out = open(buffer)) {
+            objectMapper.writeValue(out, document);
+        }
+        return buffer.size();
+    }
+
+    private OutputStream open(OutputStream out) throws IOException {
+        return switch (coding) {
+            case "gzip" -> new LeveledGzipOutputStream(out, gzipLevel);
+            case "zstd" -> new ZstdOutputStream(out, zstdLevel);
+            default -> out;
+        };
+    }
+
+    private static class LeveledGzipOutputStream extends GZIPOutputStream {
+        LeveledGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, 8192);
+            def.setLevel(level);
+        }
+    }
+}
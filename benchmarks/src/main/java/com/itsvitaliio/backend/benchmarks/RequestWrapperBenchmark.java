@@ -0,0 +1,80 @@
+package com.itsvitaliio.backend.benchmarks;
+
+import com.itsvitaliio.backend.utilities.RequestWrapper;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.DelegatingServletInputStream;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Reading a request body through LoggingFilter's capturing wrapper, against reading it directly
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestWrapperBenchmark {
+
+    private static final int MAX_CAPTURED_BYTES = 2048;
+
+    @Param({"512", "16384", "1048576"})
+    private int bodyBytes;
+
+    private HttpServletRequest request;
+    private final byte[] buffer = new byte[8192];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        byte[] body = Fixtures.text(0, bodyBytes).getBytes(StandardCharsets.UTF_8);
+        MockHttpServletRequest base = new MockHttpServletRequest("POST", "/notatky/note-children/sync");
+        base.setContentType("application/json");
+        // A fresh stream per call, like a new request would have
+        request = new HttpServletRequestWrapper(base) {
+            @Override
+            public ServletInputStream getInputStream() {
+                return new DelegatingServletInputStream(new ByteArrayInputStream(body));
+            }
+        };
+    }
+
+    @Benchmark
+    public long direct() throws IOException {
+        return drain(request.getInputStream());
+    }
+
+    @Benchmark
+    public void wrapped(Blackhole blackhole) throws IOException {
+        RequestWrapper wrapper = new RequestWrapper(request, MAX_CAPTURED_BYTES);
+        blackhole.consume(drain(wrapper.getInputStream()));
+        blackhole.consume(wrapper.getBody());
+    }
+
+    private long drain(InputStream in) throws IOException {
+        long total = 0;
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            total += count;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,86 @@
+package com.itsvitaliio.backend.benchmarks.load;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Every sample is kept, so percentiles are exact rather than bucketed
+class LatencyRecorder {
+
+    private final Map<String, Samples> byEndpoint = new ConcurrentHashMap<>();
+    private volatile boolean recording;
+
+    void start() {
+        byEndpoint.clear();
+        recording = true;
+    }
+
+    void stop() {
+        recording = false;
+    }
+
+    void record(String endpoint, long nanos, boolean success) {
+        if (recording) {
+            byEndpoint.computeIfAbsent(endpoint, e -> new Samples()).add(nanos, success);
+        }
+    }
+
+    // endpoint -> count, errors, throughput and latency percentiles in milliseconds
+    Map<String, Map<String, Object>> summarize(double seconds) {
+        Map<String, Map<String, Object>> summary = new TreeMap<>();
+        byEndpoint.forEach((endpoint, samples) -> {
+            long[] sorted = samples.sorted();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", sorted.length);
+            stats.put("errors", samples.errors.get());
+            stats.put("throughputPerSecond", round(sorted.length / seconds));
+            stats.put("p50Ms", millis(percentile(sorted, 0.50)));
+            stats.put("p95Ms", millis(percentile(sorted, 0.95)));
+            stats.put("p99Ms", millis(percentile(sorted, 0.99)));
+            stats.put("maxMs", millis(sorted.length > 0 ? sorted[sorted.length - 1] : 0));
+            summary.put(endpoint, stats);
+        });
+        return summary;
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(rank - 1, 0)];
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1_000_000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    private static class Samples {
+        private long[] values = new long[1024];
+        private int size;
+        private final AtomicLong errors = new AtomicLong();
+
+        synchronized void add(long nanos, boolean success) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+            if (!success) {
+                errors.incrementAndGet();
+            }
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
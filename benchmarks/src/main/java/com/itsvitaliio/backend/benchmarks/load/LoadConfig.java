@@ -0,0 +1,63 @@
+package com.itsvitaliio.backend.benchmarks.load;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Harness settings, read from --name=value arguments
+public record LoadConfig(int users,
+                         int notesPerUser,
+                         int blocksPerNote,
+                         int concurrency,
+                         Duration warmup,
+                         Duration duration,
+                         int syncBurst,
+                         Map<Scenario, Integer> mix,
+                         boolean virtualThreads,
+                         String output) {
+
+    public enum Scenario { LOGIN, LIST, OPEN, SYNC, UPLOAD, IMAGE }
+
+    static final String DEFAULT_MIX = "login:2,list:15,open:20,sync:50,upload:3,image:10";
+
+    public static LoadConfig parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            int split = arg.indexOf('=');
+            values.put(arg.substring(2, split), arg.substring(split + 1));
+        }
+        return new LoadConfig(
+                Integer.parseInt(values.getOrDefault("users", "50")),
+                Integer.parseInt(values.getOrDefault("notes-per-user", "20")),
+                Integer.parseInt(values.getOrDefault("blocks-per-note", "40")),
+                Integer.parseInt(values.getOrDefault("concurrency", "16")),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmup-seconds", "15"))),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration-seconds", "60"))),
+                Integer.parseInt(values.getOrDefault("sync-burst", "5")),
+                parseMix(values.getOrDefault("mix", DEFAULT_MIX)),
+                parseThreads(values.getOrDefault("threads", "platform")),
+                values.getOrDefault("output", "target/load-report.json"));
+    }
+
+    // "platform" keeps Tomcat's worker pool, "virtual" turns on virtual threads and the database bulkhead
+    private static boolean parseThreads(String threads) {
+        return switch (threads) {
+            case "platform" -> false;
+            case "virtual" -> true;
+            default -> throw new IllegalArgumentException("--threads must be platform or virtual but was " + threads);
+        };
+    }
+
+    // "sync:50,open:20" -> relative weights per scenario; scenarios left out never run
+    private static Map<Scenario, Integer> parseMix(String mix) {
+        Map<Scenario, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split(":");
+            weights.put(Scenario.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,382 @@
+package com.itsvitaliio.backend.benchmarks.load;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.itsvitaliio.backend.benchmarks.EmbeddedBackend;
+import com.itsvitaliio.backend.benchmarks.Fixtures;
+import com.itsvitaliio.backend.dto.BatchNoteChildRequest;
+import com.itsvitaliio.backend.dto.NoteChildDto;
+import com.itsvitaliio.backend.models.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Boots the backend on an in-memory database, seeds it, then drives the real HTTP endpoints with a
+// weighted mix of client behaviour and writes per-endpoint latency percentiles to a JSON file.
+//
+// Run from the repository root after building the benchmarks module:
+//   java -cp benchmarks/target/benchmarks.jar com.itsvitaliio.backend.benchmarks.load.LoadHarness \
+//        --users=50 --notes-per-user=20 --blocks-per-note=40 --concurrency=16 \
+//        --warmup-seconds=15 --duration-seconds=60 --sync-burst=5 \
+//        --mix=login:2,list:15,open:20,sync:50,upload:3,image:10 --output=target/load-report.json
+//
+// To compare request threading modes, run it twice with the same settings and a different
+// --threads=platform|virtual and --output; virtual needs a Java 21 runtime and refuses to start without one.
+// Each report is labelled with the threads Tomcat actually served on.
+public class LoadHarness {
+
+    private static final String PASSWORD = "Load-test-1!";
+    private static final int IMAGE_SLOTS = 4;
+    private static final int DISTINCT_IMAGES = 8;
+
+    private final LoadConfig config;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final LatencyRecorder recorder = new LatencyRecorder();
+    private final List<byte[]> images = new ArrayList<>();
+    private String baseUrl;
+    private String servingThreads;
+
+    public LoadHarness(LoadConfig config) {
+        this.config = config;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadHarness(LoadConfig.parse(args)).run();
+    }
+
+    public void run() throws Exception {
+        if (config.virtualThreads() && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("--threads=virtual needs a Java 21 runtime but this is Java "
+                    + Runtime.version().feature());
+        }
+        // Request logging stays on as in production; everything else comes from EmbeddedBackend
+        Map<String, Object> overrides = Map.of(
+                "request-logging.enabled", "true",
+                "spring.threads.virtual.enabled", String.valueOf(config.virtualThreads()));
+        try (ConfigurableApplicationContext context = EmbeddedBackend.start("load", overrides)) {
+            baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            servingThreads = servingThreads(context);
+            System.out.println("Serving requests on " + servingThreads + " threads");
+            generateImages();
+
+            System.out.println("Seeding " + config.users() + " users with " + config.notesPerUser()
+                    + " notes of " + config.blocksPerNote() + " blocks...");
+            List<VirtualUser> users = seed(context);
+
+            ExecutorService workers = Executors.newFixedThreadPool(config.concurrency());
+            long warmupEnd = System.nanoTime() + config.warmup().toNanos();
+            long end = warmupEnd + config.duration().toNanos();
+            for (int worker = 0; worker < config.concurrency(); worker++) {
+                int index = worker;
+                workers.submit(() -> drive(index, users, end));
+            }
+
+            sleepUntil(warmupEnd);
+            recorder.start();
+            sleepUntil(end);
+            recorder.stop();
+            workers.shutdown();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+
+            writeReport(recorder.summarize(config.duration().toMillis() / 1000.0), connectionWaits(context));
+        }
+    }
+
+    private List<VirtualUser> seed(ConfigurableApplicationContext context) throws Exception {
+        Fixtures fixtures = new Fixtures(context);
+        // SecurityConfig defines a second BCrypt encoder; this is the one UserService checks logins with
+        String encodedPassword = context.getBean("bCryptPasswordEncoder", BCryptPasswordEncoder.class).encode(PASSWORD);
+
+        List<VirtualUser> users = new ArrayList<>();
+        for (int i = 0; i < config.users(); i++) {
+            User user = fixtures.createUser("load-user-" + i, encodedPassword);
+            List<String> noteIds = new ArrayList<>();
+            for (int n = 0; n < config.notesPerUser(); n++) {
+                noteIds.add(fixtures.createNote(user, config.blocksPerNote(), 200));
+            }
+            VirtualUser virtualUser = new VirtualUser(user.getUsername(), noteIds,
+                    fixtures.createNote(user, IMAGE_SLOTS, 20));
+            users.add(virtualUser);
+
+            // Every user starts logged in and with an image to fetch
+            login(virtualUser);
+            virtualUser.imageSlots.addAll(open(virtualUser, virtualUser.imagesNoteId).stream()
+                    .map(NoteChildDto::getId)
+                    .toList());
+            upload(virtualUser);
+        }
+        return users;
+    }
+
+    private void drive(int worker, List<VirtualUser> users, long end) {
+        // Workers mostly stay on their own users so concurrent edits of one note stay rare, as in real use
+        int usersPerWorker = Math.max(1, users.size() / config.concurrency());
+        int totalWeight = config.mix().values().stream().mapToInt(Integer::intValue).sum();
+        while (System.nanoTime() < end) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            VirtualUser user = users.get((worker + config.concurrency() * random.nextInt(usersPerWorker)) % users.size());
+            try {
+                switch (pick(random.nextInt(totalWeight))) {
+                    case LOGIN -> login(user);
+                    case LIST -> send("GET /notatky/notes", authorized(user, "/notatky/notes").GET().build());
+                    case OPEN -> open(user, randomNote(user));
+                    case SYNC -> syncBurst(user, randomNote(user));
+                    case UPLOAD -> upload(user);
+                    case IMAGE -> fetchImage(user);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("LoadHarness - Worker " + worker + " error: " + e.getMessage());
+            }
+        }
+    }
+
+    private LoadConfig.Scenario pick(int roll) {
+        for (Map.Entry<LoadConfig.Scenario, Integer> entry : config.mix().entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty request mix");
+    }
+
+    private void login(VirtualUser user) throws Exception {
+        String body = objectMapper.writeValueAsString(Map.of("username", user.username, "password", PASSWORD));
+        HttpResponse<byte[]> response = send("POST /login", HttpRequest.newBuilder(URI.create(baseUrl + "/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build());
+        if (response.statusCode() == 200) {
+            JsonNode json = objectMapper.readTree(response.body());
+            user.token = json.get("data").asText();
+        }
+    }
+
+    private List<NoteChildDto> open(VirtualUser user, String noteId) throws Exception {
+        HttpResponse<byte[]> response = send("GET /notatky/note-children/all/{noteId}",
+                authorized(user, "/notatky/note-children/all/" + noteId).GET().build());
+        if (response.statusCode() != 200) {
+            return List.of();
+        }
+        return objectMapper.readValue(response.body(), new TypeReference<List<NoteChildDto>>() {});
+    }
+
+    // A client typing into one block: the whole document is synced after each short pause
+    private void syncBurst(VirtualUser user, String noteId) throws Exception {
+        List<NoteChildDto> document = open(user, noteId);
+        List<NoteChildDto> textBlocks = document.stream().filter(dto -> dto.getTextNode() != null).toList();
+        if (textBlocks.isEmpty()) {
+            return;
+        }
+        NoteChildDto block = textBlocks.get(ThreadLocalRandom.current().nextInt(textBlocks.size()));
+        for (int i = 0; i < config.syncBurst(); i++) {
+            block.getTextNode().setContent(block.getTextNode().getContent() + (char) ('a' + i % 26));
+            BatchNoteChildRequest request = new BatchNoteChildRequest();
+            request.setNoteChildren(document);
+            send("POST /notatky/note-children/sync/{noteId}",
+                    authorized(user, "/notatky/note-children/sync/" + noteId)
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(request)))
+                            .build());
+            Thread.sleep(ThreadLocalRandom.current().nextInt(20, 80));
+        }
+    }
+
+    private void upload(VirtualUser user) throws Exception {
+        if (user.imageSlots.isEmpty()) {
+            return;
+        }
+        String slot = user.imageSlots.get(ThreadLocalRandom.current().nextInt(user.imageSlots.size()));
+        String boundary = "load-" + UUID.randomUUID();
+        byte[] image = images.get(ThreadLocalRandom.current().nextInt(images.size()));
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(image.length + 256);
+        body.write(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"image\"; filename=\"upload.png\"\r\n"
+                + "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(image);
+        body.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        HttpResponse<byte[]> response = send("POST /notatky/note-children/upload/{noteId}/{noteChildId}",
+                authorized(user, "/notatky/note-children/upload/" + user.imagesNoteId + "/" + slot)
+                        .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                        .build());
+        if (response.statusCode() == 200) {
+            List<NoteChildDto> document = objectMapper.readValue(response.body(), new TypeReference<List<NoteChildDto>>() {});
+            document.stream()
+                    .filter(dto -> dto.getImageNode() != null)
+                    .forEach(dto -> user.imageIds.addIfAbsent(dto.getImageNode().getId()));
+        }
+    }
+
+    private void fetchImage(VirtualUser user) throws Exception {
+        if (user.imageIds.isEmpty()) {
+            return;
+        }
+        String imageId = user.imageIds.get(ThreadLocalRandom.current().nextInt(user.imageIds.size()));
+        send("GET /notatky/note-children/images/{imageNodeId}",
+                authorized(user, "/notatky/note-children/images/" + imageId).GET().build());
+    }
+
+    private HttpRequest.Builder authorized(VirtualUser user, String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + user.token);
+    }
+
+    private HttpResponse<byte[]> send(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            recorder.record(endpoint, System.nanoTime() - start, response.statusCode() < 400);
+            return response;
+        } catch (IOException e) {
+            recorder.record(endpoint, System.nanoTime() - start, false);
+            throw e;
+        }
+    }
+
+    private String randomNote(VirtualUser user) {
+        return user.noteIds.get(ThreadLocalRandom.current().nextInt(user.noteIds.size()));
+    }
+
+    // A few distinct photos-sized PNGs, so uploads are not all deduplicated into one stored file
+    private void generateImages() throws IOException {
+        Random random = new Random(7);
+        for (int i = 0; i < DISTINCT_IMAGES; i++) {
+            BufferedImage image = new BufferedImage(1280, 960, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            for (int shape = 0; shape < 200; shape++) {
+                graphics.setColor(new Color(random.nextInt(0xFFFFFF)));
+                graphics.fillRect(random.nextInt(1280), random.nextInt(960), random.nextInt(200), random.nextInt(200));
+            }
+            graphics.dispose();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", out);
+            images.add(out.toByteArray());
+        }
+    }
+
+    // Server-side connection wait distributions over the whole run, seeding included
+    private Map<String, Map<String, Object>> connectionWaits(ConfigurableApplicationContext context) {
+        MeterRegistry registry = context.getBean(MeterRegistry.class);
+        Map<String, Map<String, Object>> waits = new LinkedHashMap<>();
+        for (String name : List.of("hikaricp.connections.acquire", "db.bulkhead.wait")) {
+            Timer timer = registry.find(name).timer();
+            if (timer == null) {
+                continue;
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", timer.count());
+            stats.put("meanMs", Math.round(timer.mean(TimeUnit.MILLISECONDS) * 100) / 100.0);
+            stats.put("maxMs", Math.round(timer.max(TimeUnit.MILLISECONDS) * 100) / 100.0);
+            waits.put(name, stats);
+        }
+        return waits;
+    }
+
+    private void writeReport(Map<String, Map<String, Object>> endpoints,
+                             Map<String, Map<String, Object>> connectionWaits) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("users", config.users());
+        settings.put("notesPerUser", config.notesPerUser());
+        settings.put("blocksPerNote", config.blocksPerNote());
+        settings.put("concurrency", config.concurrency());
+        settings.put("warmupSeconds", config.warmup().toSeconds());
+        settings.put("durationSeconds", config.duration().toSeconds());
+        settings.put("syncBurst", config.syncBurst());
+        settings.put("mix", config.mix());
+        settings.put("threads", servingThreads);
+        report.put("config", settings);
+        report.put("endpoints", endpoints);
+        report.put("connectionWaits", connectionWaits);
+
+        Path output = Paths.get(config.output());
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), report);
+
+        System.out.printf("%-60s %8s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        endpoints.forEach((endpoint, stats) -> System.out.printf("%-60s %8s %7s %9s %9s %9s %9s %9s%n",
+                endpoint, stats.get("count"), stats.get("errors"), stats.get("throughputPerSecond"),
+                stats.get("p50Ms"), stats.get("p95Ms"), stats.get("p99Ms"), stats.get("maxMs")));
+        connectionWaits.forEach((name, stats) -> System.out.printf("%-60s %8s   mean %s ms, max %s ms%n",
+                name, stats.get("count"), stats.get("meanMs"), stats.get("maxMs")));
+        System.out.println("Report written to " + output.toAbsolutePath());
+    }
+
+    // What Tomcat's connector runs requests on, whatever was asked for
+    private static String servingThreads(ConfigurableApplicationContext context) {
+        TomcatWebServer webServer = (TomcatWebServer) ((WebServerApplicationContext) context).getWebServer();
+        Object executor = webServer.getTomcat().getConnector().getProtocolHandler().getExecutor();
+        return executor instanceof VirtualThreadExecutor ? "virtual" : "platform";
+    }
+
+    private static void sleepUntil(long nanoTime) throws InterruptedException {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+
+    private static class VirtualUser {
+        final String username;
+        final List<String> noteIds;
+        final String imagesNoteId;
+        final List<String> imageSlots = new CopyOnWriteArrayList<>();
+        final CopyOnWriteArrayList<String> imageIds = new CopyOnWriteArrayList<>();
+        volatile String token;
+
+        VirtualUser(String username, List<String> noteIds, String imagesNoteId) {
+            this.username = username;
+            this.noteIds = noteIds;
+            this.imagesNoteId = imagesNoteId;
+        }
+    }
+}